@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads the assets of the next level while the current level is played, so the
+ * level transition does not stall on them. A background thread reads the
+ * level's sprites into the Assets registry and builds its background; the
+ * render thread then creates their bagel images (which can only be done on the
+ * thread owning the window) one per frame, and the simulation swaps the prepared
+ * background in on the tick the level is loaded.
+ */
+public class AssetPrefetcher {
+    // Sprites waiting for their image
+    private static final int PENDING_IMAGES = 16;
+
+    // One prefetch thread serves every session
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "asset prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FrameProfiler PROFILER;
+    private final SpscQueue<Sprite> PENDING;
+    private final AtomicReference<Prepared> PREPARED;
+
+    // Owned by the simulation
+    private int requested;
+
+    // Owned by the render thread
+    private int imagesCreated;
+
+    /**
+     * A background built ahead for a level
+     */
+    private static class Prepared {
+        private final int LEVEL;
+        private final Background BACKGROUND;
+
+        private Prepared(int level, Background background) {
+            this.LEVEL = level;
+            this.BACKGROUND = background;
+        }
+    }
+
+    /**
+     * Create a prefetcher with nothing requested
+     *
+     * @param profiler The profiler timing the prefetches and image creation (may be null)
+     */
+    public AssetPrefetcher(FrameProfiler profiler) {
+        PROFILER = profiler;
+        PENDING = new SpscQueue<>(PENDING_IMAGES);
+        PREPARED = new AtomicReference<>();
+        requested = -1;
+    }
+
+    /**
+     * Start loading the assets of a level, unless it is already requested or
+     * does not exist (simulation only)
+     *
+     * @param level The level number
+     */
+    public void request(int level) {
+        if (level == requested || level >= Levels.getCount())
+            return;
+        requested = level;
+        LOADER.execute(() -> load(level));
+    }
+
+    /**
+     * Load the sprites and background of a level and queue their images (prefetch thread only)
+     */
+    private void load(int level) {
+        long start = System.nanoTime();
+        Level definition = Levels.get(level);
+        Background background = new Background(definition);
+
+        // Images that do not fit are created when first drawn instead
+        for (String path : getSpritePaths(definition))
+            PENDING.offer(Assets.get(path));
+        background.forEachSprite(PENDING::offer);
+
+        PREPARED.set(new Prepared(level, background));
+        if (PROFILER != null)
+            PROFILER.lap(FrameProfiler.PREFETCH, start);
+    }
+
+    /**
+     * Returns the paths of the shared sprites a level uses
+     *
+     * @param level The level
+     * @return Returns the sprite paths
+     */
+    private static List<String> getSpritePaths(Level level) {
+        List<String> paths = new ArrayList<>();
+        paths.add(level.getAsset(Bird.WING_UP_IMAGE));
+        paths.add(level.getAsset(Bird.WING_DOWN_IMAGE));
+        if (level.getSteelPercent() < 100)
+            paths.add(PipeSet.PLASTIC_PIPE_IMAGE);
+        if (level.getSteelPercent() > 0) {
+            paths.add(PipeSet.STEEL_PIPE_IMAGE);
+            paths.add(PipeSet.FLAME_IMAGE);
+        }
+        if (level.hasWeapons()) {
+            paths.add(Rock.IMAGE);
+            paths.add(Bomb.IMAGE);
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the background prepared for a level and forgets the request
+     * (simulation only)
+     *
+     * @param level The level being loaded
+     * @return Returns the prepared background, or null if it is not ready or for another level
+     */
+    public Background takeBackground(int level) {
+        requested = -1;
+        Prepared prepared = PREPARED.getAndSet(null);
+        if (prepared == null || prepared.LEVEL != level)
+            return null;
+        return prepared.BACKGROUND;
+    }
+
+    /**
+     * Create the image of the next prefetched sprite, if any (render thread only)
+     *
+     * @return Returns true if a sprite was taken from the queue
+     */
+    public boolean createImage() {
+        Sprite sprite = PENDING.poll();
+        if (sprite == null)
+            return false;
+        if (!sprite.hasImage()) {
+            long start = System.nanoTime();
+            sprite.getImage();
+            imagesCreated += 1;
+            if (PROFILER != null)
+                PROFILER.lap(FrameProfiler.IMAGE, start);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of images created ahead by the render thread
+     *
+     * @return Returns the image count
+     */
+    public int getImagesCreated() {
+        return imagesCreated;
+    }
+}
@@ -0,0 +1,67 @@
+import bagel.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry that loads each sprite under res/ once and hands out the shared copy,
+ * drawn from the atlas if it is packed there
+ */
+public final class Assets {
+    /**
+     * Shared draw options for sprites drawn upside down (must not be modified)
+     */
+    public static final DrawOptions ROTATED = new DrawOptions().setRotation(Math.PI);
+
+    private static final Map<String, Sprite> SPRITES = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private Assets() {
+    }
+
+    /**
+     * Returns the shared sprite for a file, loading it on the first request
+     *
+     * @param path Path of the PNG file
+     * @return Returns the shared sprite
+     */
+    public static Sprite get(String path) {
+        Sprite sprite = SPRITES.get(path);
+        if (sprite != null) {
+            HITS.incrementAndGet();
+            return sprite;
+        }
+
+        MISSES.incrementAndGet();
+        return SPRITES.computeIfAbsent(path, key -> new Sprite(key, Atlas.getDefault()));
+    }
+
+    /**
+     * Returns the number of requests served from the registry
+     *
+     * @return Returns the hit count
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * Returns the number of requests that had to load the sprite
+     *
+     * @return Returns the miss count
+     */
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Returns the number of distinct sprites loaded
+     *
+     * @return Returns the number of sprites
+     */
+    public static int size() {
+        return SPRITES.size();
+    }
+}
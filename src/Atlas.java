@@ -0,0 +1,234 @@
+import bagel.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The regions of the sprites packed into one sheet by AtlasBuilder, so sprites
+ * from the sheet are all drawn from the same texture. The regions are read once
+ * from res/atlas.txt (one region spec per line, such as
+ * "sprite=res/level-1/rock.png,rotated=false,x=1,y=1,width=32,height=32", where
+ * every key is required; blank lines and lines starting with # are ignored) and
+ * kept in flat tables indexed by region, with the draw options selecting each
+ * region made once. A sprite drawn upside down uses its rotated copy in the
+ * sheet if it has one, and its upright region turned half a turn otherwise.
+ */
+public class Atlas {
+    /**
+     * The image of the sheet
+     */
+    public static final String SHEET_PATH = "res/atlas.png";
+    /**
+     * The file the regions are read from
+     */
+    public static final String TABLE_PATH = "res/atlas.txt";
+
+    private final Sprite SHEET;
+    private final Map<String, Integer> UPRIGHT;
+
+    // One entry per region
+    private final int[] WIDTHS;
+    private final int[] HEIGHTS;
+    private final DrawOptions[] SECTIONS;
+    private final DrawOptions[] ROTATED_SECTIONS;
+
+    // Loaded on first use; null if the game has no atlas
+    private static final class Holder {
+        private static final Atlas DEFAULT = Files.exists(Paths.get(TABLE_PATH))
+                ? load(TABLE_PATH, SHEET_PATH) : null;
+    }
+
+    /**
+     * Create an atlas from its region tables
+     */
+    private Atlas(Sprite sheet, List<String> paths, List<Boolean> rotated, List<int[]> bounds) {
+        SHEET = sheet;
+        UPRIGHT = new HashMap<>();
+        int count = paths.size();
+        WIDTHS = new int[count];
+        HEIGHTS = new int[count];
+        SECTIONS = new DrawOptions[count];
+        ROTATED_SECTIONS = new DrawOptions[count];
+
+        Map<String, Integer> turned = new HashMap<>();
+        for (int i = 0; i < count; ++i) {
+            int[] region = bounds.get(i);
+            WIDTHS[i] = region[2];
+            HEIGHTS[i] = region[3];
+            SECTIONS[i] = new DrawOptions().setSection(region[0], region[1], region[2], region[3]);
+
+            Map<String, Integer> index = rotated.get(i) ? turned : UPRIGHT;
+            if (index.put(paths.get(i), i) != null)
+                throw new IllegalArgumentException("Duplicate region for " + paths.get(i));
+        }
+
+        for (Map.Entry<String, Integer> entry : UPRIGHT.entrySet()) {
+            int region = entry.getValue();
+            Integer copy = turned.get(entry.getKey());
+            if (copy == null)
+                ROTATED_SECTIONS[region] = new DrawOptions()
+                        .setSection(bounds.get(region)[0], bounds.get(region)[1], WIDTHS[region], HEIGHTS[region])
+                        .setRotation(Math.PI);
+            else if (WIDTHS[copy] != WIDTHS[region] || HEIGHTS[copy] != HEIGHTS[region])
+                throw new IllegalArgumentException("Rotated region of " + entry.getKey() + " has another size");
+            else
+                ROTATED_SECTIONS[region] = SECTIONS[copy];
+        }
+        if (!UPRIGHT.keySet().containsAll(turned.keySet()))
+            throw new IllegalArgumentException("Rotated region without an upright region");
+    }
+
+    /**
+     * Returns the atlas of the game, read from TABLE_PATH on first use
+     *
+     * @return Returns the atlas, or null if there is no table (sprites then use their own textures)
+     */
+    public static Atlas getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Read and check the regions of a table
+     *
+     * @param table The file of region specs to read
+     * @param sheet The image of the sheet
+     * @return Returns the atlas
+     */
+    public static Atlas load(String table, String sheet) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(table));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read atlas regions from " + table, e);
+        }
+
+        List<String> paths = new ArrayList<>();
+        List<Boolean> rotated = new ArrayList<>();
+        List<int[]> bounds = new ArrayList<>();
+        for (int i = 0; i < lines.size(); ++i) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            try {
+                parseRegion(line, paths, rotated, bounds);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(table + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+
+        Sprite sheetSprite = new Sprite(sheet);
+        for (int[] region : bounds)
+            if (region[0] + region[2] > sheetSprite.getWidth() || region[1] + region[3] > sheetSprite.getHeight())
+                throw new IllegalArgumentException(table + ": region outside " + sheet);
+        try {
+            return new Atlas(sheetSprite, paths, rotated, bounds);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(table + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read one region spec into the tables
+     */
+    private static void parseRegion(String spec, List<String> paths, List<Boolean> rotated, List<int[]> bounds) {
+        String path = null;
+        Boolean turned = null;
+        int[] region = {-1, -1, -1, -1};
+
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split("=", 2);
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Expected key=value in " + spec);
+
+            switch (parts[0]) {
+                case "sprite":
+                    path = parts[1];
+                    break;
+                case "rotated":
+                    if (!parts[1].equals("true") && !parts[1].equals("false"))
+                        throw new IllegalArgumentException("Expected true or false, got " + parts[1]);
+                    turned = parts[1].equals("true");
+                    break;
+                case "x":
+                    region[0] = Integer.parseInt(parts[1]);
+                    break;
+                case "y":
+                    region[1] = Integer.parseInt(parts[1]);
+                    break;
+                case "width":
+                    region[2] = Integer.parseInt(parts[1]);
+                    break;
+                case "height":
+                    region[3] = Integer.parseInt(parts[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown region key " + parts[0]);
+            }
+        }
+
+        if (path == null || turned == null || region[0] < 0 || region[1] < 0 || region[2] <= 0 || region[3] <= 0)
+            throw new IllegalArgumentException("Incomplete region " + spec);
+        paths.add(path);
+        rotated.add(turned);
+        bounds.add(region);
+    }
+
+    /**
+     * Returns the region of a sprite, if it is packed at its current size
+     *
+     * @param path Path of the sprite's PNG file
+     * @param width Width of the sprite
+     * @param height Height of the sprite
+     * @return Returns the region index, or -1 if the sprite is not packed (or the sheet is out of date)
+     */
+    public int find(String path, double width, double height) {
+        Integer region = UPRIGHT.get(path);
+        if (region == null || WIDTHS[region] != width || HEIGHTS[region] != height)
+            return -1;
+        return region;
+    }
+
+    /**
+     * Returns the draw options selecting a region of the sheet (must not be modified)
+     *
+     * @param region The region index
+     * @return Returns the section options
+     */
+    public DrawOptions getSection(int region) {
+        return SECTIONS[region];
+    }
+
+    /**
+     * Returns the draw options drawing a region of the sheet upside down (must not be modified)
+     *
+     * @param region The region index
+     * @return Returns the section options of the rotated copy, or of the region turned half a turn
+     */
+    public DrawOptions getRotatedSection(int region) {
+        return ROTATED_SECTIONS[region];
+    }
+
+    /**
+     * Returns the sprite of the whole sheet, whose image all packed sprites are drawn from
+     *
+     * @return Returns the sheet sprite
+     */
+    public Sprite getSheet() {
+        return SHEET;
+    }
+
+    /**
+     * Returns the number of regions in the sheet
+     *
+     * @return Returns the region count
+     */
+    public int getRegionCount() {
+        return SECTIONS.length;
+    }
+}
@@ -0,0 +1,217 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line tool that packs the sprites under res/ into one sheet
+ * (Atlas.SHEET_PATH) and writes the table of their regions (Atlas.TABLE_PATH).
+ * Background tiles are left out, as they are nearly as tall as the window and
+ * only drawn while in view. The sprites drawn upside down also get a copy turned
+ * half a turn, so drawing them needs no rotation. Run again whenever a sprite
+ * changes; a sprite whose size no longer matches its region falls back to its
+ * own image.
+ */
+public class AtlasBuilder {
+    // Border around each region, repeating its edge pixels so filtering never reads a neighbour
+    private static final int PADDING = 1;
+    private static final int MIN_SIZE = 64;
+    private static final int MAX_SIZE = 4096;
+
+    // Sprites drawn with Assets.ROTATED
+    private static final List<String> DRAWN_ROTATED = Arrays.asList(
+            PipeSet.PLASTIC_PIPE_IMAGE, PipeSet.STEEL_PIPE_IMAGE, PipeSet.FLAME_IMAGE);
+
+    /**
+     * A sprite image and where it goes in the sheet
+     */
+    private static class Entry {
+        private final String PATH;
+        private final boolean ROTATED;
+        private final BufferedImage IMAGE;
+        private int x;
+        private int y;
+
+        private Entry(String path, boolean rotated, BufferedImage image) {
+            this.PATH = path;
+            this.ROTATED = rotated;
+            this.IMAGE = image;
+        }
+    }
+
+    /**
+     * The entry point for the atlas builder.
+     *
+     * @param args Optional --no-rotated to leave out the rotated copies
+     * @throws IOException If a sprite cannot be read or the atlas cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        boolean rotatedCopies = !Arrays.asList(args).contains("--no-rotated");
+
+        List<Entry> entries = new ArrayList<>();
+        for (String path : findSprites()) {
+            BufferedImage image = ImageIO.read(new File(path));
+            if (image == null)
+                throw new IOException("Unable to decode sprite " + path);
+            entries.add(new Entry(path, false, image));
+            if (rotatedCopies && DRAWN_ROTATED.contains(path))
+                entries.add(new Entry(path, true, turn(image)));
+        }
+
+        // Tallest first, each shelf as high as its first entry
+        entries.sort(Comparator.comparingInt((Entry entry) -> -entry.IMAGE.getHeight())
+                .thenComparing(entry -> entry.PATH).thenComparing(entry -> entry.ROTATED));
+        int[] size = pack(entries);
+
+        BufferedImage sheet = new BufferedImage(size[0], size[1], BufferedImage.TYPE_INT_ARGB);
+        for (Entry entry : entries)
+            blit(entry, sheet);
+        ImageIO.write(sheet, "png", new File(Atlas.SHEET_PATH));
+        writeTable(entries, Atlas.TABLE_PATH);
+
+        System.out.printf("packed %d regions into %s (%dx%d), regions written to %s%n",
+                entries.size(), Atlas.SHEET_PATH, size[0], size[1], Atlas.TABLE_PATH);
+    }
+
+    /**
+     * Returns the paths of the PNGs under res/ to pack, in order
+     */
+    private static List<String> findSprites() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get("res"))) {
+            return files.map(path -> path.toString().replace(File.separatorChar, '/'))
+                    .filter(path -> path.endsWith(".png"))
+                    .filter(path -> !path.equals(Atlas.SHEET_PATH))
+                    .filter(path -> !isBackgroundTile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns true if a path is one of a level's background tiles
+     */
+    private static boolean isBackgroundTile(String path) {
+        for (String tile : Background.TILES)
+            if (path.endsWith("/" + tile))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns a copy of an image turned half a turn (as drawn with Assets.ROTATED)
+     */
+    private static BufferedImage turn(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage turned = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                turned.setRGB(width - 1 - x, height - 1 - y, image.getRGB(x, y));
+        return turned;
+    }
+
+    /**
+     * Place the entries on shelves in the smallest power of two sheet they fit in
+     *
+     * @return Returns the width and height of the sheet
+     */
+    private static int[] pack(List<Entry> entries) throws IOException {
+        int[] best = null;
+        for (int width = MIN_SIZE; width <= MAX_SIZE; width *= 2) {
+            int height = place(entries, width);
+            if (height < 0)
+                continue;
+            int sheetHeight = MIN_SIZE;
+            while (sheetHeight < height)
+                sheetHeight *= 2;
+            if (sheetHeight <= MAX_SIZE && (best == null || isSmaller(width, sheetHeight, best)))
+                best = new int[] {width, sheetHeight};
+        }
+        if (best == null)
+            throw new IOException("Sprites do not fit in a " + MAX_SIZE + "x" + MAX_SIZE + " sheet");
+
+        place(entries, best[0]);
+        return best;
+    }
+
+    /**
+     * Returns true if a sheet size has less area than another, or the same area and a shorter longest side
+     */
+    private static boolean isSmaller(int width, int height, int[] other) {
+        long area = (long) width * height;
+        long otherArea = (long) other[0] * other[1];
+        if (area != otherArea)
+            return area < otherArea;
+        return Math.max(width, height) < Math.max(other[0], other[1]);
+    }
+
+    /**
+     * Place the entries on shelves of a given width
+     *
+     * @return Returns the height used, or -1 if an entry is wider than the sheet
+     */
+    private static int place(List<Entry> entries, int width) {
+        int shelfY = 0;
+        int shelfHeight = 0;
+        int x = 0;
+        for (Entry entry : entries) {
+            int entryWidth = entry.IMAGE.getWidth() + (2 * PADDING);
+            int entryHeight = entry.IMAGE.getHeight() + (2 * PADDING);
+            if (entryWidth > width)
+                return -1;
+            if (x + entryWidth > width) {
+                shelfY += shelfHeight;
+                shelfHeight = 0;
+                x = 0;
+            }
+            entry.x = x + PADDING;
+            entry.y = shelfY + PADDING;
+            x += entryWidth;
+            shelfHeight = Math.max(shelfHeight, entryHeight);
+        }
+        return shelfY + shelfHeight;
+    }
+
+    /**
+     * Copy an entry into its region of the sheet, with its edges repeated into the padding
+     */
+    private static void blit(Entry entry, BufferedImage sheet) {
+        int width = entry.IMAGE.getWidth();
+        int height = entry.IMAGE.getHeight();
+        for (int y = -PADDING; y < height + PADDING; ++y)
+            for (int x = -PADDING; x < width + PADDING; ++x) {
+                int sourceX = Math.min(Math.max(x, 0), width - 1);
+                int sourceY = Math.min(Math.max(y, 0), height - 1);
+                sheet.setRGB(entry.x + x, entry.y + y, entry.IMAGE.getRGB(sourceX, sourceY));
+            }
+    }
+
+    /**
+     * Write the region table read by Atlas
+     */
+    private static void writeTable(List<Entry> entries, String path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path)))) {
+            out.println("# Regions of the sprites packed into " + Atlas.SHEET_PATH + ", written by AtlasBuilder");
+            out.println("# (run it again after changing a sprite instead of editing this file)");
+            out.println("#");
+            out.println("# sprite   path of the packed PNG, as passed to Assets.get");
+            out.println("# rotated  true for the copy turned half a turn, drawn for Assets.ROTATED");
+            out.println("# x, y     top-left corner of the region in the sheet");
+            out.println("# width    width of the region (the width of the PNG)");
+            out.println("# height   height of the region (the height of the PNG)");
+            for (Entry entry : entries)
+                out.printf("sprite=%s,rotated=%b,x=%d,y=%d,width=%d,height=%d%n", entry.PATH, entry.ROTATED,
+                        entry.x, entry.y, entry.IMAGE.getWidth(), entry.IMAGE.getHeight());
+        }
+    }
+}
@@ -1,34 +1,66 @@
-import bagel.*;
+import java.util.function.Consumer;
 
 /**
- * Creates and displays the backgrounds based on current level played
+ * Creates and displays the parallax backgrounds based on current level played
  */
 
 public class Background {
-    private final Image BACKGROUND;
-    private final double WINDOW_WIDTH;
-    private final double WINDOW_HEIGHT;
+    /**
+     * Tiles of the scenery panorama, left to right, in the asset directory of a level
+     */
+    public static final String[] TILES = {
+            "background-0.png", "background-1.png", "background-2.png", "background-3.png",
+            "background-4.png", "background-5.png", "background-6.png", "background-7.png"
+    };
+
+    private final ParallaxLayer[] LAYERS;
+
+    // Fraction of the game speed the scenery scrolls at
+    private final double SCENERY_FACTOR = 0.2;
 
     /**
      * Creates a background object with current level of the game
      * @param level Level of the game playing
      */
-    public Background(int level){
-        // Window size never changes
-        WINDOW_WIDTH = Window.getWidth() / 2.0;
-        WINDOW_HEIGHT = Window.getHeight() / 2.0;
-
-        // Load appropriate background
-        if (level == 0)
-            BACKGROUND = new Image("res/level-0/background.png");
-        else
-            BACKGROUND = new Image("res/level-1/background.png");
+    public Background(Level level){
+        String[] scenery = new String[TILES.length];
+        for (int i = 0; i < TILES.length; ++i)
+            scenery[i] = level.getAsset(TILES[i]);
+
+        // Load appropriate background (back to front)
+        LAYERS = new ParallaxLayer[] {
+                new ParallaxLayer(scenery, SCENERY_FACTOR, 0)
+        };
+    }
+
+    /**
+     * Scroll all layers by one tick at the current game speed
+     *
+     * @param speed The current game speed
+     */
+    public void update(double speed) {
+        for (ParallaxLayer layer : LAYERS)
+            layer.update(speed);
+    }
+
+    /**
+     * Pass every sprite currently visible in the layers to an action
+     *
+     * @param action The action taking each sprite
+     */
+    public void forEachSprite(Consumer<Sprite> action) {
+        for (ParallaxLayer layer : LAYERS)
+            layer.forEachVisible(action);
     }
 
     /**
      * Display background on screen
+     *
+     * @param alpha Interpolation factor between the last two ticks
      */
-    public void displayBackground(){
-        BACKGROUND.draw(WINDOW_WIDTH, WINDOW_HEIGHT);
+    public void displayBackground(double alpha){
+        Sprite.setLayer(Renderer.BACKGROUND_LAYER);
+        for (ParallaxLayer layer : LAYERS)
+            layer.draw(alpha);
     }
 }
@@ -0,0 +1,17 @@
+import bagel.*;
+
+/**
+ * Renderer that draws sprites immediately through bagel, in call order (layers are ignored)
+ */
+public class BagelRenderer implements Renderer {
+
+    @Override
+    public void draw(Sprite sprite, double x, double y, DrawOptions options, int layer) {
+        sprite.drawImage(x, y, options, false);
+    }
+
+    @Override
+    public void drawFromTopLeft(Sprite sprite, double x, double y, int layer) {
+        sprite.drawImage(x, y, null, true);
+    }
+}
@@ -0,0 +1,248 @@
+import java.util.SplittableRandom;
+
+/**
+ * Training environment holding a batch of independent headless game sessions
+ * that are all stepped by one call. Actions are World input bitmasks (SPACE to
+ * flap, SHOOT, SPEED_UP, SLOW_DOWN), and observations, rewards and done flags
+ * are written into arrays allocated once, and a session that ends is started
+ * again in its world, so stepping does not allocate.
+ *
+ * Sessions start (and continue after a level up) without input, and a session
+ * that ends is replaced by a new one straight away: its done flag is set and
+ * its observation is the first of the new session.
+ */
+public class BatchEnvironment {
+    /**
+     * Observation: y-coordinate of the bird
+     */
+    public static final int BIRD_Y = 0;
+    /**
+     * Observation: vertical velocity of the bird (positive is downwards)
+     */
+    public static final int BIRD_VELOCITY = 1;
+    /**
+     * Observation: x distance from the bird to the next pipe set (window width if none)
+     */
+    public static final int PIPE_DX = 2;
+    /**
+     * Observation: centre of the gap of the next pipe set (window centre if none)
+     */
+    public static final int PIPE_GAP = 3;
+    /**
+     * Observation: 1 if the next pipe set is steel, 0 if plastic
+     */
+    public static final int PIPE_STEEL = 4;
+    /**
+     * Observation: x distance from the bird to the next weapon to pick up (window width if none)
+     */
+    public static final int WEAPON_DX = 5;
+    /**
+     * Observation: y-coordinate of the next weapon to pick up (window centre if none)
+     */
+    public static final int WEAPON_Y = 6;
+    /**
+     * Observation: 1 if the bird holds a weapon, 0 otherwise
+     */
+    public static final int HOLDING_WEAPON = 7;
+    /**
+     * Observation: lives left
+     */
+    public static final int LIVES = 8;
+    /**
+     * Observation: timescale, from 0 to 5
+     */
+    public static final int TIMESCALE = 9;
+    /**
+     * Observation: level, from 0
+     */
+    public static final int LEVEL = 10;
+    /**
+     * Number of values observed per session
+     */
+    public static final int OBSERVATION_SIZE = 11;
+
+    // Reward for losing a session (each point scored is worth 1)
+    private final double LOSS_REWARD = -1.0;
+
+    private final World[] WORLDS;
+    private final Difficulty DIFFICULTY;
+    private final SplittableRandom SEEDS;
+    private final double[] OBSERVATIONS;
+    private final double[] REWARDS;
+    private final boolean[] DONE;
+    private final int[] SCORES;
+    private long episodes;
+
+    /**
+     * Create a batch of sessions at the default difficulty
+     *
+     * @param size Number of sessions
+     * @param seed Seed of the seeds of all sessions
+     */
+    public BatchEnvironment(int size, long seed) {
+        this(size, seed, Difficulty.DEFAULT);
+    }
+
+    /**
+     * Create a batch of sessions
+     *
+     * @param size Number of sessions
+     * @param seed Seed of the seeds of all sessions
+     * @param difficulty The spawning parameters of every session
+     */
+    public BatchEnvironment(int size, long seed, Difficulty difficulty) {
+        WORLDS = new World[size];
+        DIFFICULTY = difficulty;
+        SEEDS = new SplittableRandom(seed);
+        OBSERVATIONS = new double[size * OBSERVATION_SIZE];
+        REWARDS = new double[size];
+        DONE = new boolean[size];
+        SCORES = new int[size];
+        episodes = 0;
+
+        for (int i = 0; i < size; ++i)
+            reset(i);
+    }
+
+    /**
+     * Advance every session by one tick
+     *
+     * @param actions One input bitmask per session
+     */
+    public void step(int[] actions) {
+        for (int i = 0; i < WORLDS.length; ++i) {
+            World world = WORLDS[i];
+            world.update(world.isGameOn() ? actions[i] : World.SPACE);
+
+            int score = world.getTotalScore();
+            REWARDS[i] = score - SCORES[i];
+            SCORES[i] = score;
+            DONE[i] = world.isGameOver();
+
+            if (DONE[i]) {
+                if (!world.isGameWon())
+                    REWARDS[i] += LOSS_REWARD;
+                reset(i);
+            } else
+                observe(i);
+        }
+    }
+
+    /**
+     * Start a new session in a slot (reusing the world of the last one) and observe it
+     *
+     * @param index Index of the session
+     */
+    private void reset(int index) {
+        if (WORLDS[index] == null)
+            WORLDS[index] = new World(SEEDS.nextLong(), DIFFICULTY);
+        else
+            WORLDS[index].reset(SEEDS.nextLong());
+        SCORES[index] = 0;
+        episodes += 1;
+        observe(index);
+    }
+
+    /**
+     * Write the observation of a session
+     *
+     * @param index Index of the session
+     */
+    private void observe(int index) {
+        World world = WORLDS[index];
+        Bird bird = world.getBird();
+        GameManager manager = world.getManager();
+        int offset = index * OBSERVATION_SIZE;
+
+        OBSERVATIONS[offset + BIRD_Y] = bird.getY();
+        OBSERVATIONS[offset + BIRD_VELOCITY] = bird.getVelocity();
+
+        PipeSet pipeSet = manager.getNextPipe();
+        OBSERVATIONS[offset + PIPE_DX] = (pipeSet == null) ? World.WIDTH : pipeSet.getX() - bird.getX();
+        OBSERVATIONS[offset + PIPE_GAP] = (pipeSet == null) ? World.HEIGHT / 2.0 : pipeSet.getGapCentre();
+        OBSERVATIONS[offset + PIPE_STEEL] = ((pipeSet != null) && pipeSet.isSteel()) ? 1 : 0;
+
+        Weapon weapon = manager.getNextWeapon();
+        OBSERVATIONS[offset + WEAPON_DX] = (weapon == null) ? World.WIDTH : weapon.getX() - bird.getX();
+        OBSERVATIONS[offset + WEAPON_Y] = (weapon == null) ? World.HEIGHT / 2.0 : weapon.getY();
+
+        OBSERVATIONS[offset + HOLDING_WEAPON] = bird.getHasPickedWeapon() ? 1 : 0;
+        OBSERVATIONS[offset + LIVES] = bird.getLives();
+        OBSERVATIONS[offset + TIMESCALE] = manager.getTimeScale();
+        OBSERVATIONS[offset + LEVEL] = world.getLevel();
+    }
+
+    /**
+     * Returns the observations of all sessions, OBSERVATION_SIZE values per
+     * session (indexed by the observation constants), updated in place by step
+     *
+     * @return Returns the observations
+     */
+    public double[] getObservations() {
+        return OBSERVATIONS;
+    }
+
+    /**
+     * Returns the reward of each session for the last step, updated in place by step
+     *
+     * @return Returns the rewards
+     */
+    public double[] getRewards() {
+        return REWARDS;
+    }
+
+    /**
+     * Returns whether each session ended on the last step (and was replaced), updated in place by step
+     *
+     * @return Returns the done flags
+     */
+    public boolean[] getDone() {
+        return DONE;
+    }
+
+    /**
+     * Returns the number of sessions in the batch
+     *
+     * @return Returns the batch size
+     */
+    public int size() {
+        return WORLDS.length;
+    }
+
+    /**
+     * Returns the number of sessions started so far
+     *
+     * @return Returns the episode count
+     */
+    public long getEpisodes() {
+        return episodes;
+    }
+
+    /**
+     * Measure stepping throughput with random actions.
+     *
+     * @param args Optional batch size and number of steps
+     */
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 256;
+        int steps = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+
+        BatchEnvironment environment = new BatchEnvironment(size, 1);
+        SplittableRandom random = new SplittableRandom(2);
+        int[] actions = new int[size];
+
+        long startBytes = Soak.allocatedBytes();
+        long start = System.nanoTime();
+        for (int step = 0; step < steps; ++step) {
+            for (int i = 0; i < size; ++i)
+                actions[i] = (random.nextInt(8) == 0) ? World.SPACE : 0;
+            environment.step(actions);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long envSteps = (long) size * steps;
+
+        System.out.printf("size=%d steps=%d envStepsPerS=%.0f episodes=%d allocatedBytesPerEnvStep=%.1f%n",
+                size, steps, envSteps / elapsedSeconds, environment.getEpisodes(),
+                (double) (Soak.allocatedBytes() - startBytes) / envSteps);
+    }
+}
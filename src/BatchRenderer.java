@@ -0,0 +1,131 @@
+import bagel.*;
+
+import java.util.Arrays;
+
+/**
+ * Renderer that queues the draws of a frame and flushes them sorted by layer and
+ * then texture, so sprites sharing a texture (such as the sprites packed in the
+ * atlas) are drawn back to back. Draws within
+ * the same layer and texture keep their submission order.
+ */
+public class BatchRenderer implements Renderer {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Sort key: layer (high bits), texture id, submission index (low bits)
+    private static final int INDEX_BITS = 20;
+    private static final int TEXTURE_BITS = 20;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    // Queued draws
+    private Sprite[] sprites;
+    private double[] xs;
+    private double[] ys;
+    private DrawOptions[] options;
+    private boolean[] fromTopLeft;
+    private long[] keys;
+    private int count;
+
+    // Statistics of the last flush
+    private int drawCalls;
+    private int textureSwitches;
+
+    /**
+     * Create an empty render queue
+     */
+    public BatchRenderer() {
+        sprites = new Sprite[INITIAL_CAPACITY];
+        xs = new double[INITIAL_CAPACITY];
+        ys = new double[INITIAL_CAPACITY];
+        options = new DrawOptions[INITIAL_CAPACITY];
+        fromTopLeft = new boolean[INITIAL_CAPACITY];
+        keys = new long[INITIAL_CAPACITY];
+        count = 0;
+    }
+
+    @Override
+    public void draw(Sprite sprite, double x, double y, DrawOptions options, int layer) {
+        submit(sprite, x, y, options, false, layer);
+    }
+
+    @Override
+    public void drawFromTopLeft(Sprite sprite, double x, double y, int layer) {
+        submit(sprite, x, y, null, true, layer);
+    }
+
+    /**
+     * Draw everything queued this frame in layer and texture order and empty the queue
+     */
+    public void flush() {
+        Arrays.sort(keys, 0, count);
+
+        drawCalls = 0;
+        textureSwitches = 0;
+        int lastTexture = -1;
+        for (int i = 0; i < count; ++i) {
+            int index = (int) (keys[i] & INDEX_MASK);
+            Sprite sprite = sprites[index];
+
+            int texture = sprite.getTextureId(options[index]);
+            if (texture != lastTexture) {
+                lastTexture = texture;
+                textureSwitches += 1;
+            }
+
+            sprite.drawImage(xs[index], ys[index], options[index], fromTopLeft[index]);
+            drawCalls += 1;
+
+            sprites[index] = null;
+            options[index] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * Returns the number of sprites drawn by the last flush
+     *
+     * @return Returns the draw calls
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Returns the number of times the last flush changed texture
+     *
+     * @return Returns the texture switches
+     */
+    public int getTextureSwitches() {
+        return textureSwitches;
+    }
+
+    /**
+     * Add a draw to the queue
+     */
+    private void submit(Sprite sprite, double x, double y, DrawOptions drawOptions, boolean topLeft, int layer) {
+        if (count == sprites.length)
+            grow();
+
+        sprites[count] = sprite;
+        xs[count] = x;
+        ys[count] = y;
+        options[count] = drawOptions;
+        fromTopLeft[count] = topLeft;
+        keys[count] = ((long) layer << (INDEX_BITS + TEXTURE_BITS))
+                | ((long) sprite.getTextureId(drawOptions) << INDEX_BITS)
+                | count;
+        count += 1;
+    }
+
+    /**
+     * Double the capacity of the queue
+     */
+    private void grow() {
+        int capacity = sprites.length * 2;
+        sprites = Arrays.copyOf(sprites, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        options = Arrays.copyOf(options, capacity);
+        fromTopLeft = Arrays.copyOf(fromTopLeft, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+    }
+}
@@ -1,90 +1,140 @@
-import bagel.*;
 import bagel.util.*;
-import java.util.ArrayList;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 /**
  * Contains all bird functionality used throughout the game
  */
 
 public class Bird {
-    private final Image WING_UP;
-    private final Image WING_DOWN;
+    /**
+     * Image of the bird with its wings up, in the asset directory of a level
+     */
+    public static final String WING_UP_IMAGE = "birdWingUp.png";
+    /**
+     * Image of the bird with its wings down, in the asset directory of a level
+     */
+    public static final String WING_DOWN_IMAGE = "birdWingDown.png";
+
+    private final Sprite WING_UP;
+    private final Sprite WING_DOWN;
     private final LifeBar LIFEBAR;
-    private final ArrayList<Weapon> WEAPONS;
+    private final RingBuffer<Weapon> WEAPONS;
 
-    private Point position;
+    private double x;
+    private double y;
+    private double previousY;
     private double velocity;
+    private final Box BOX = new Box();
     private boolean hasPickedWeapon;
+    private Consumer<Weapon> recycler;
 
     private final double WIDTH;
     private final double ACCELERATION = 0.4;
     private final double TERMINAL_VELOCITY = 10.0;
-    private final Point INITIAL_POSITION = new Point(200, 350);
+    private final double INITIAL_X = 200;
+    private final double INITIAL_Y = 350;
 
     /**
      * Creates a bird object based on the level of the game
      *
      * @param level Current level of the game
      */
-    public Bird(Integer level) {
-        String str_lvl = level.toString();
+    public Bird(Level level) {
+        WING_UP = Assets.get(level.getAsset(WING_UP_IMAGE));
+        WING_DOWN = Assets.get(level.getAsset(WING_DOWN_IMAGE));
 
-        WING_UP = new Image("res/level-" + str_lvl + "/birdWingUp.png");
-        WING_DOWN = new Image("res/level-" + str_lvl+ "/birdWingDown.png");
-
-        LIFEBAR = new LifeBar(level);
+        LIFEBAR = new LifeBar(level.getLives());
         WIDTH = WING_UP.getWidth();
-        WEAPONS = new ArrayList<>();
+        WEAPONS = new RingBuffer<>();
 
         // Load bird variables
         velocity = 0;
         hasPickedWeapon = false;
-        position = INITIAL_POSITION;
+        respawn();
+        recycler = weapon -> { };
+    }
+
+    /**
+     * Moves the bird and the weapons it is holding or has shot by one frame
+     */
+    public void update() {
+        // Apply gravity effect
+        gravity();
+
+        // Move weapons
+        updateWeapons();
+    }
+
+    /**
+     * Remember the positions of the bird and its weapons for interpolation
+     */
+    public void savePosition() {
+        previousY = y;
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).savePosition();
     }
 
     /**
      * Renders bird on screen and flaps every 10 frames
      *
      * @param frameCounter Count the number of frames since bird has been spawned
+     * @param alpha Interpolation factor between the last two ticks
      */
-    public void drawBird(int frameCounter) {
+    public void drawBird(int frameCounter, double alpha) {
+        double drawY = previousY + ((y - previousY) * alpha);
+        Sprite.setLayer(Renderer.BIRD_LAYER);
         if ((frameCounter % 10) == 0)
-            WING_UP.draw(position.x, position.y);
+            WING_UP.draw(x, drawY);
         else
-            WING_DOWN.draw(position.x, position.y);
-
-        // Apply gravity effect
-        gravity();
+            WING_DOWN.draw(x, drawY);
 
         // Bird's lives
         LIFEBAR.drawLifeBar();
 
         // Draw weapons
-        drawWeapons();
+        drawWeapons(alpha);
     }
 
     /**
-     * Draw all weapons held and shot by bird from the weapons array
+     * Move all weapons held and shot by bird from the weapons array
      */
-    public void drawWeapons() {
-        for (Weapon weapon: WEAPONS) {
+    public void updateWeapons() {
+        for (int i = 0; i < WEAPONS.size(); ++i) {
+            Weapon weapon = WEAPONS.get(i);
             if (weapon.getIsPicked())
-                weapon.updatePosition(position, WIDTH);
+                weapon.updatePosition(x, y, WIDTH);
             else if (weapon.getIsShot())
                 if (!weapon.checkOutOfRange())
                     weapon.updatePosition();
                 else {
-                    removeWeapon(weapon);
+                    recycler.accept(WEAPONS.removeAt(i));
                     break;
                 }
         }
     }
 
+    /**
+     * Draw all weapons held and shot by bird from the weapons array
+     *
+     * @param alpha Interpolation factor between the last two ticks
+     */
+    public void drawWeapons(double alpha) {
+        Sprite.setLayer(Renderer.WEAPON_LAYER);
+        for (int i = 0; i < WEAPONS.size(); ++i) {
+            Weapon weapon = WEAPONS.get(i);
+            if (weapon.getIsPicked() || weapon.getIsShot())
+                weapon.drawObject(alpha);
+        }
+    }
+
     /**
      * Add gravity like fall to the bird
      */
     public void gravity() {
-        position = new Point(position.x, position.y + velocity);
+        y += velocity;
+        BOX.translate(0, velocity);
         // Accelerate bird
         if ((velocity + ACCELERATION) <= TERMINAL_VELOCITY)
             velocity += ACCELERATION;
@@ -108,6 +158,16 @@ public class Bird {
      */
     public void removeWeapon(Weapon weapon) {
         WEAPONS.remove(weapon);
+        recycler.accept(weapon);
+    }
+
+    /**
+     * Set where weapons go once removed from the bird (e.g. back to a pool)
+     *
+     * @param recycler Consumer of removed weapons
+     */
+    public void setRecycler(Consumer<Weapon> recycler) {
+        this.recycler = recycler;
     }
 
     /**
@@ -117,7 +177,7 @@ public class Bird {
      */
     public boolean checkOutOfBoundsAndLives() {
         // If the centre of the bird is out-of-bounds
-        if (position.y < 0 || position.y > Window.getHeight()) {
+        if (y < 0 || y > World.HEIGHT) {
             lifeLost();
             if (hasLives())
                 respawn();
@@ -128,38 +188,55 @@ public class Bird {
         return false;
     }
 
-    /**
-     * Checking for destruction from any of the shot weapons
-     *
-     * @param pipeSet The pipe in front of the bird in play
-     * @return Returns true if pipe and shot weapon intersect
-     */
-    public boolean checkWeaponDestruction(PipeSet pipeSet) {
-        for (Weapon weapon: WEAPONS)
-            if (weapon.checkDestruction(pipeSet)) {
-                removeWeapon(weapon);
-                return !((weapon.getType() == Weapon.WEAPON_TYPE.ROCK) && (pipeSet.getLEVEL() == 1));
-            }
-        return false;
-    }
-
     /**
      * Resets bird properties for weapons and shoots the currently held weapon
      */
     public void shootTheWeapon() {
         this.hasPickedWeapon = false;
-        Weapon temp = WEAPONS.get(WEAPONS.size() - 1);
+        Weapon temp = WEAPONS.peekLast();
         if (!temp.getIsShot())
             temp.shootWeapon();
     }
 
     /**
-     * Returns the current position of the bird
+     * Register the bird and the weapons it holds or has shot with the broadphase
+     *
+     * @param broadphase The broadphase for this frame
+     */
+    public void addBoxes(Broadphase broadphase) {
+        broadphase.add(BOX, GameManager.BIRD_LAYER, this);
+        for (int i = 0; i < WEAPONS.size(); ++i) {
+            Weapon weapon = WEAPONS.get(i);
+            if (weapon.getIsPicked() || weapon.getIsShot())
+                broadphase.add(weapon.getBox(), GameManager.WEAPON_LAYER, weapon);
+        }
+    }
+
+    /**
+     * Returns a copy of the current position of the bird
      *
      * @return Returns position of bird
      */
     public Point getPosition() {
-        return position;
+        return new Point(x, y);
+    }
+
+    /**
+     * Returns the x-coordinate of the centre of the bird
+     *
+     * @return Returns the x-coordinate
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinate of the centre of the bird
+     *
+     * @return Returns the y-coordinate
+     */
+    public double getY() {
+        return y;
     }
 
     /**
@@ -177,16 +254,16 @@ public class Bird {
      * @return Returns weapon held by bird
      */
     public Weapon getPickedWeapon() {
-        return WEAPONS.get(WEAPONS.size() - 1);
+        return WEAPONS.peekLast();
     }
 
     /**
      * Returns bounding box of the bird
      *
-     * @return Returns the rectangle of the bird
+     * @return Returns the box of the bird (kept up to date as the bird moves)
      */
-    public Rectangle getBox() {
-        return WING_UP.getBoundingBoxAt(position);
+    public Box getBox() {
+        return BOX;
     }
 
     /**
@@ -197,6 +274,17 @@ public class Bird {
     public void setWeapon(Weapon weapon) {
         WEAPONS.add(weapon);
         hasPickedWeapon = true;
+        // Held from here on, not swept from where it was picked up
+        weapon.attachTo(x, y, WIDTH);
+    }
+
+    /**
+     * Start a new collision step from the current positions of the bird and its weapons
+     */
+    public void clearMotion() {
+        BOX.clearMotion();
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).clearMotion();
     }
 
     /**
@@ -208,6 +296,24 @@ public class Bird {
         return LIFEBAR.hasLives();
     }
 
+    /**
+     * Returns the number of lives left
+     *
+     * @return Returns the lives left
+     */
+    public int getLives() {
+        return LIFEBAR.getLivesLeft();
+    }
+
+    /**
+     * Returns the vertical velocity of the bird (positive is downwards)
+     *
+     * @return Returns the velocity
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
     /**
      * Update life bar (after collision)
      */
@@ -216,10 +322,73 @@ public class Bird {
     }
 
     /**
-     * Respawn bird at initial position once out-of-bounds
+     * Respawn bird at initial position once out-of-bounds, with its held weapons
+     * placed beside it (teleported, so they sweep nothing on the way back)
      */
     public void respawn() {
-        position = INITIAL_POSITION;
+        x = INITIAL_X;
+        y = INITIAL_Y;
+        previousY = y;
         velocity = 0;
+        BOX.setCentre(x, y, WING_UP.getWidth(), WING_UP.getHeight());
+        for (int i = 0; i < WEAPONS.size(); ++i) {
+            Weapon weapon = WEAPONS.get(i);
+            if (weapon.getIsPicked())
+                weapon.attachTo(x, y, WIDTH);
+        }
+    }
+
+    /**
+     * Start the level again, as a new bird would: every life back, the weapons
+     * held or shot recycled and the bird at its initial position
+     */
+    public void reset() {
+        while (!WEAPONS.isEmpty())
+            recycler.accept(WEAPONS.poll());
+        hasPickedWeapon = false;
+        LIFEBAR.reset();
+        respawn();
+    }
+
+    /**
+     * Write the position, velocity, lives and weapons of the bird
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putDouble(x);
+        out.putDouble(y);
+        out.putDouble(previousY);
+        out.putDouble(velocity);
+        BOX.writeState(out);
+        out.put((byte) (hasPickedWeapon ? 1 : 0));
+        out.putInt(LIFEBAR.getLivesLeft());
+
+        out.putInt(WEAPONS.size());
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).writeWeapon(out);
+    }
+
+    /**
+     * Restore a state written by writeState (replacing the weapons held or shot)
+     *
+     * @param in The buffer to read from
+     * @param rocks The pool the restored rocks are taken from
+     * @param bombs The pool the restored bombs are taken from
+     */
+    public void readState(ByteBuffer in, Pool<Weapon> rocks, Pool<Weapon> bombs) {
+        x = in.getDouble();
+        y = in.getDouble();
+        previousY = in.getDouble();
+        velocity = in.getDouble();
+        BOX.readState(in);
+        hasPickedWeapon = in.get() != 0;
+        LIFEBAR.setLivesLeft(in.getInt());
+
+        while (!WEAPONS.isEmpty())
+            recycler.accept(WEAPONS.poll());
+        int weapons = in.getInt();
+        for (int i = 0; i < weapons; ++i)
+            WEAPONS.add(Weapon.readWeapon(in, rocks, bombs));
     }
 }
@@ -1,20 +1,35 @@
-import bagel.*;
-
 /**
  * Creates a bomb class that extends functionality from Weapon
  */
 public class Bomb extends Weapon {
+    /**
+     * Image of a bomb
+     */
+    public static final String IMAGE = "res/level-1/bomb.png";
 
     /**
      * Constructor that feeds the bomb parameters to the super (Weapon class)
      *
      * @param pipeSet The pipe set after which the weapon needs to be initialized
+     * @param manager The manager spawning the weapon
+     * @param placement Where the weapon goes between the pipe sets, from 0 (inclusive) to 1 (exclusive)
+     * @param y The y-coordinate of the weapon
      */
-    public Bomb(PipeSet pipeSet) {
+    public Bomb(PipeSet pipeSet, GameManager manager, double placement, int y) {
         super(
-                new Image("res/level-1/bomb.png"),
+                Assets.get(IMAGE),
                 WEAPON_TYPE.BOMB,
-                pipeSet
+                pipeSet,
+                manager,
+                placement,
+                y
         );
     }
+
+    /**
+     * Create a bomb to be restored from a checkpoint
+     */
+    public Bomb() {
+        super(Assets.get(IMAGE), WEAPON_TYPE.BOMB);
+    }
 }
@@ -0,0 +1,216 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Mutable axis-aligned bounding box owned by a moving object, kept up to date
+ * as the object moves instead of being rebuilt for every collision query. The
+ * box also keeps how far it has moved since the last collision step, so a test
+ * can sweep it along its path instead of only looking at where it ended up.
+ */
+public class Box {
+    private double left;
+    private double top;
+    private double right;
+    private double bottom;
+
+    // Distance moved since the last collision step (placing the box starts over)
+    private double motionX;
+    private double motionY;
+
+    /**
+     * Place the box around a centre point, as if it had been there since the
+     * last collision step (for spawning and respawning)
+     *
+     * @param x The x-coordinate of the centre
+     * @param y The y-coordinate of the centre
+     * @param width The width of the box
+     * @param height The height of the box
+     */
+    public void setCentre(double x, double y, double width, double height) {
+        left = x - (width / 2);
+        right = left + width;
+        top = y - (height / 2);
+        bottom = top + height;
+        clearMotion();
+    }
+
+    /**
+     * Move the box to a new centre point, adding the move to its motion
+     *
+     * @param x The x-coordinate of the centre
+     * @param y The y-coordinate of the centre
+     * @param width The width of the box
+     * @param height The height of the box
+     */
+    public void moveCentre(double x, double y, double width, double height) {
+        double startLeft = left - motionX;
+        double startTop = top - motionY;
+        setCentre(x, y, width, height);
+        motionX = left - startLeft;
+        motionY = top - startTop;
+    }
+
+    /**
+     * Move the box by an offset, adding the move to its motion
+     *
+     * @param dx The change in x
+     * @param dy The change in y
+     */
+    public void translate(double dx, double dy) {
+        left += dx;
+        right += dx;
+        top += dy;
+        bottom += dy;
+        motionX += dx;
+        motionY += dy;
+    }
+
+    /**
+     * Start a new collision step from where the box is now
+     */
+    public void clearMotion() {
+        motionX = 0;
+        motionY = 0;
+    }
+
+    /**
+     * Check if this box overlaps (or touches) another box
+     *
+     * @param other The other box
+     * @return Returns true if the boxes intersect
+     */
+    public boolean intersects(Box other) {
+        return (left <= other.right) && (right >= other.left) && (top <= other.bottom) && (bottom >= other.top);
+    }
+
+    /**
+     * Returns when this box first overlaps (or touches) another box during the
+     * collision step, both moving in a straight line from where they were at
+     * the start of the step (swept AABB test). Boxes that overlap at the end of
+     * the step always hit, so no discrete hit is lost.
+     *
+     * @param other The other box
+     * @return Returns the time of impact, from 0 (start of the step) to 1 (now), or -1 if they never touch
+     */
+    public double timeOfImpact(Box other) {
+        // Move this box relative to the other, held where it started
+        double velocityX = motionX - other.motionX;
+        double velocityY = motionY - other.motionY;
+        double startLeft = left - motionX;
+        double startTop = top - motionY;
+        double startRight = right - motionX;
+        double startBottom = bottom - motionY;
+        double otherLeft = other.left - other.motionX;
+        double otherTop = other.top - other.motionY;
+        double otherRight = other.right - other.motionX;
+        double otherBottom = other.bottom - other.motionY;
+
+        // Narrow the step down to the span where both axes overlap
+        double enter = 0;
+        double exit = 1;
+        if (velocityX == 0) {
+            if ((startLeft > otherRight) || (startRight < otherLeft))
+                exit = -1;
+        } else {
+            double first = (otherLeft - startRight) / velocityX;
+            double last = (otherRight - startLeft) / velocityX;
+            enter = Math.max(enter, Math.min(first, last));
+            exit = Math.min(exit, Math.max(first, last));
+        }
+        if (velocityY == 0) {
+            if ((startTop > otherBottom) || (startBottom < otherTop))
+                exit = -1;
+        } else {
+            double first = (otherTop - startBottom) / velocityY;
+            double last = (otherBottom - startTop) / velocityY;
+            enter = Math.max(enter, Math.min(first, last));
+            exit = Math.min(exit, Math.max(first, last));
+        }
+        if (enter <= exit)
+            return enter;
+
+        // Rounding must not lose boxes that touch exactly at the end
+        return intersects(other) ? 1 : -1;
+    }
+
+    /**
+     * Returns the x-coordinate of the left edge of the area swept during the collision step
+     *
+     * @return Returns the swept left edge
+     */
+    public double sweptLeft() {
+        return Math.min(left, left - motionX);
+    }
+
+    /**
+     * Returns the x-coordinate of the right edge of the area swept during the collision step
+     *
+     * @return Returns the swept right edge
+     */
+    public double sweptRight() {
+        return Math.max(right, right - motionX);
+    }
+
+    /**
+     * Returns the x-coordinate of the left edge
+     *
+     * @return Returns the left edge
+     */
+    public double left() {
+        return left;
+    }
+
+    /**
+     * Returns the x-coordinate of the right edge
+     *
+     * @return Returns the right edge
+     */
+    public double right() {
+        return right;
+    }
+
+    /**
+     * Returns the y-coordinate of the top edge
+     *
+     * @return Returns the top edge
+     */
+    public double top() {
+        return top;
+    }
+
+    /**
+     * Returns the y-coordinate of the bottom edge
+     *
+     * @return Returns the bottom edge
+     */
+    public double bottom() {
+        return bottom;
+    }
+
+    /**
+     * Write the edges and motion of the box
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putDouble(left);
+        out.putDouble(top);
+        out.putDouble(right);
+        out.putDouble(bottom);
+        out.putDouble(motionX);
+        out.putDouble(motionY);
+    }
+
+    /**
+     * Restore edges written by writeState
+     *
+     * @param in The buffer to read from
+     */
+    public void readState(ByteBuffer in) {
+        left = in.getDouble();
+        top = in.getDouble();
+        right = in.getDouble();
+        bottom = in.getDouble();
+        motionX = in.getDouble();
+        motionY = in.getDouble();
+    }
+}
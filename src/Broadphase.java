@@ -0,0 +1,222 @@
+import java.util.Arrays;
+
+/**
+ * Sweep-and-prune broadphase over the x-axis. Boxes are registered each frame
+ * with a layer bit and an owner, sorted by the left edge of the area they swept
+ * this step (insertion sort, as scrolling objects are already almost in x order)
+ * and swept once to produce the pairs of boxes whose layers are set to interact
+ * and that touched at some time during the step, with their time of impact.
+ */
+public class Broadphase {
+    private static final int INITIAL_CAPACITY = 32;
+    private static final int MAX_LAYERS = 32;
+
+    // Registered boxes
+    private Box[] boxes;
+    private int[] layers;
+    private Object[] owners;
+    private int[] order;
+    private int[] active;
+    private int count;
+
+    // Candidate pairs (first has the lower layer bit)
+    private int[] first;
+    private int[] second;
+    private double[] times;
+    private int pairCount;
+
+    private final int[] INTERACTIONS;
+
+    /**
+     * Create an empty broadphase where no layers interact
+     */
+    public Broadphase() {
+        boxes = new Box[INITIAL_CAPACITY];
+        layers = new int[INITIAL_CAPACITY];
+        owners = new Object[INITIAL_CAPACITY];
+        order = new int[INITIAL_CAPACITY];
+        active = new int[INITIAL_CAPACITY];
+        first = new int[INITIAL_CAPACITY];
+        second = new int[INITIAL_CAPACITY];
+        times = new double[INITIAL_CAPACITY];
+        INTERACTIONS = new int[MAX_LAYERS];
+    }
+
+    /**
+     * Produce pairs between boxes of two layers
+     *
+     * @param layerA A single layer bit
+     * @param layerB A single layer bit (may equal layerA)
+     */
+    public void setInteraction(int layerA, int layerB) {
+        INTERACTIONS[Integer.numberOfTrailingZeros(layerA)] |= layerB;
+        INTERACTIONS[Integer.numberOfTrailingZeros(layerB)] |= layerA;
+    }
+
+    /**
+     * Remove all boxes and pairs
+     */
+    public void clear() {
+        for (int i = 0; i < count; ++i) {
+            boxes[i] = null;
+            owners[i] = null;
+        }
+        count = 0;
+        pairCount = 0;
+    }
+
+    /**
+     * Register a box for the next sweep
+     *
+     * @param box The bounding box (read during the sweep)
+     * @param layer A single layer bit
+     * @param owner The object the box belongs to
+     */
+    public void add(Box box, int layer, Object owner) {
+        if (count == boxes.length)
+            growBoxes();
+        boxes[count] = box;
+        layers[count] = layer;
+        owners[count] = owner;
+        order[count] = count;
+        count += 1;
+    }
+
+    /**
+     * Sort the boxes by swept left edge and collect the pairs that touched during the step
+     */
+    public void sweep() {
+        sortByLeft();
+        pairCount = 0;
+
+        int activeCount = 0;
+        for (int i = 0; i < count; ++i) {
+            int current = order[i];
+            Box box = boxes[current];
+
+            // Drop boxes that end before this one starts, test the rest
+            int kept = 0;
+            for (int j = 0; j < activeCount; ++j) {
+                int other = active[j];
+                if (boxes[other].sweptRight() < box.sweptLeft())
+                    continue;
+                active[kept++] = other;
+
+                if ((INTERACTIONS[Integer.numberOfTrailingZeros(layers[other])] & layers[current]) != 0) {
+                    double time = box.timeOfImpact(boxes[other]);
+                    if (time >= 0)
+                        addPair(other, current, time);
+                }
+            }
+            active[kept++] = current;
+            activeCount = kept;
+        }
+    }
+
+    /**
+     * Returns the number of pairs found by the last sweep
+     *
+     * @return Returns the pair count
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * Returns the owner of the box with the lower layer bit in a pair
+     *
+     * @param pair Index of the pair
+     * @return Returns the owner
+     */
+    public Object getFirst(int pair) {
+        return owners[first[pair]];
+    }
+
+    /**
+     * Returns the owner of the box with the higher layer bit in a pair
+     *
+     * @param pair Index of the pair
+     * @return Returns the owner
+     */
+    public Object getSecond(int pair) {
+        return owners[second[pair]];
+    }
+
+    /**
+     * Returns when the boxes of a pair first touched during the step
+     *
+     * @param pair Index of the pair
+     * @return Returns the time of impact, from 0 (start of the step) to 1 (end of the step)
+     */
+    public double getTime(int pair) {
+        return times[pair];
+    }
+
+    /**
+     * Returns the layer of the first box in a pair
+     *
+     * @param pair Index of the pair
+     * @return Returns the layer bit
+     */
+    public int getFirstLayer(int pair) {
+        return layers[first[pair]];
+    }
+
+    /**
+     * Returns the layer of the second box in a pair
+     *
+     * @param pair Index of the pair
+     * @return Returns the layer bit
+     */
+    public int getSecondLayer(int pair) {
+        return layers[second[pair]];
+    }
+
+    /**
+     * Insertion sort of the order array by swept left edge
+     */
+    private void sortByLeft() {
+        for (int i = 1; i < count; ++i) {
+            int current = order[i];
+            double left = boxes[current].sweptLeft();
+            int j = i - 1;
+            while (j >= 0 && boxes[order[j]].sweptLeft() > left) {
+                order[j + 1] = order[j];
+                j -= 1;
+            }
+            order[j + 1] = current;
+        }
+    }
+
+    /**
+     * Record a pair and its time of impact, ordered by layer bit
+     */
+    private void addPair(int a, int b, double time) {
+        if (pairCount == first.length) {
+            first = Arrays.copyOf(first, first.length * 2);
+            second = Arrays.copyOf(second, second.length * 2);
+            times = Arrays.copyOf(times, times.length * 2);
+        }
+        times[pairCount] = time;
+        if (layers[a] <= layers[b]) {
+            first[pairCount] = a;
+            second[pairCount] = b;
+        } else {
+            first[pairCount] = b;
+            second[pairCount] = a;
+        }
+        pairCount += 1;
+    }
+
+    /**
+     * Double the capacity for registered boxes
+     */
+    private void growBoxes() {
+        int capacity = boxes.length * 2;
+        boxes = Arrays.copyOf(boxes, capacity);
+        layers = Arrays.copyOf(layers, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        order = Arrays.copyOf(order, capacity);
+        active = Arrays.copyOf(active, capacity);
+    }
+}
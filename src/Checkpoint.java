@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Binary checkpoint of a whole session, so it can be suspended and resumed from
+ * the same tick (or attached to a bug report). A checkpoint file holds a header
+ * (magic, version, payload length and CRC32 of the payload) followed by the
+ * world as written by World.writeState; files are written with a FileChannel
+ * and memory-mapped when loaded.
+ */
+public class Checkpoint {
+    // File header
+    private static final int MAGIC = 0x464c4353;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 16;
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Returns the checkpoint of a world (header and payload), ready to be written
+     *
+     * @param world The world to checkpoint
+     * @return Returns the checkpoint, from position 0 to its limit
+     */
+    public static ByteBuffer encode(World world) {
+        // Grow until the world fits (a session rarely needs more than a few KB)
+        for (int capacity = INITIAL_CAPACITY; ; capacity *= 2) {
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            try {
+                buffer.position(HEADER_SIZE);
+                world.writeState(buffer);
+            } catch (BufferOverflowException e) {
+                continue;
+            }
+
+            int length = buffer.position() - HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), HEADER_SIZE, length);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, length);
+            buffer.putInt(12, (int) crc.getValue());
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Read a world from a checkpoint written by encode
+     *
+     * @param buffer The checkpoint, from its position
+     * @return Returns the restored world
+     * @throws IOException If the buffer is not a valid checkpoint
+     */
+    public static World decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            throw new IOException("Not a checkpoint");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported checkpoint version " + version);
+        int length = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IOException("Truncated checkpoint");
+
+        ByteBuffer payload = buffer.slice();
+        payload.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != expectedCrc)
+            throw new IOException("Corrupt checkpoint");
+
+        try {
+            return World.readWorld(payload);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid checkpoint", e);
+        }
+    }
+
+    /**
+     * Write a checkpoint of a world to a file
+     *
+     * @param world The world to checkpoint
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public static void save(World world, String path) throws IOException {
+        ByteBuffer buffer = encode(world);
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read a world from a checkpoint file written by save
+     *
+     * @param path The file to read
+     * @return Returns the restored world
+     * @throws IOException If the file cannot be read or is not a valid checkpoint
+     */
+    public static World load(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * Play a session with the autopilot, checkpoint it through a file, check that
+     * the restored session continues exactly like the original, and time saving
+     * and loading.
+     *
+     * @param args Optional path of the checkpoint file, seed, ticks before the checkpoint and repeats
+     * @throws IOException If the checkpoint file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        String path = (args.length > 0) ? args[0] : "checkpoint.bin";
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 42;
+        int ticks = (args.length > 2) ? Integer.parseInt(args[2]) : 2000;
+        int repeats = (args.length > 3) ? Integer.parseInt(args[3]) : 1000;
+
+        // Random flaps on top of the autopilot so the bird holds and shoots weapons
+        SplittableRandom random = new SplittableRandom(seed);
+        World world = new World(seed);
+        for (int i = 0; (i < ticks) && !world.isGameOver(); ++i)
+            world.update(Soak.autopilot(world) | (random.nextInt(16) == 0 ? World.SHOOT : 0));
+
+        // In memory, then through the file
+        Histogram encodeTimes = new Histogram();
+        Histogram decodeTimes = new Histogram();
+        Histogram saveTimes = new Histogram();
+        Histogram loadTimes = new Histogram();
+        World restored = null;
+        for (int i = 0; i < repeats; ++i) {
+            long start = System.nanoTime();
+            ByteBuffer buffer = encode(world);
+            long encoded = System.nanoTime();
+            decode(buffer);
+            long decoded = System.nanoTime();
+            save(world, path);
+            long saved = System.nanoTime();
+            restored = load(path);
+
+            encodeTimes.record(encoded - start);
+            decodeTimes.record(decoded - encoded);
+            saveTimes.record(saved - decoded);
+            loadTimes.record(System.nanoTime() - saved);
+        }
+
+        // Both sessions must go on tick for tick
+        boolean identical = true;
+        for (int i = 0; (i < ticks) && identical; ++i) {
+            int input = Soak.autopilot(world) | (random.nextInt(16) == 0 ? World.SHOOT : 0);
+            world.update(input);
+            restored.update(input);
+            identical = Arrays.equals(toBytes(world), toBytes(restored));
+        }
+
+        System.out.printf("seed=%d level=%d score=%d bytes=%d identical=%b%n", seed, world.getLevel(),
+                world.getScore(), encode(world).limit(), identical);
+        printTimes("encode", encodeTimes);
+        printTimes("decode", decodeTimes);
+        printTimes("save", saveTimes);
+        printTimes("load", loadTimes);
+    }
+
+    /**
+     * Print the median and 99th percentile of a timing in microseconds
+     */
+    private static void printTimes(String name, Histogram times) {
+        System.out.printf("%s p50=%.1f p99=%.1f (us)%n", name, times.getPercentile(50) / 1e3,
+                times.getPercentile(99) / 1e3);
+    }
+
+    /**
+     * Returns the checkpoint of a world as a byte array
+     */
+    private static byte[] toBytes(World world) {
+        ByteBuffer buffer = encode(world);
+        return Arrays.copyOf(buffer.array(), buffer.limit());
+    }
+}
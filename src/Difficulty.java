@@ -0,0 +1,181 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The tunable parameters of pipe and weapon spawning, fixed for a game session.
+ * A difficulty can be written as a spec such as
+ * "gaps=100/300/500,ylow=100,yhigh=500,factor=1.5,spawn=100", where missing keys
+ * keep their default values.
+ */
+public class Difficulty {
+    /**
+     * The difficulty the game is played at
+     */
+    public static final Difficulty DEFAULT = new Difficulty(new int[] {100, 300, 500}, 100, 500, 1.5, 100);
+
+    private final int[] FIXED_GAPS;
+    private final int Y_LOWER_BOUND;
+    private final int Y_UPPER_BOUND;
+    private final double SPEED_FACTOR;
+    private final int INITIAL_SPAWN_RATE;
+
+    /**
+     * Create a difficulty
+     *
+     * @param fixedGaps The gap centres of pipes on levels with fixed gaps
+     * @param yLowerBound The y-axis lower bound for randomized y values (gaps and weapons)
+     * @param yUpperBound The y-axis upper bound for randomized y values (gaps and weapons)
+     * @param speedFactor The speed (and spawn rate) multiplier between timescales
+     * @param initialSpawnRate The frames between pipe spawns at the first timescale
+     */
+    public Difficulty(int[] fixedGaps, int yLowerBound, int yUpperBound, double speedFactor, int initialSpawnRate) {
+        if (fixedGaps.length == 0 || yUpperBound <= yLowerBound || speedFactor <= 0 || initialSpawnRate <= 0)
+            throw new IllegalArgumentException("Invalid difficulty");
+
+        this.FIXED_GAPS = fixedGaps.clone();
+        this.Y_LOWER_BOUND = yLowerBound;
+        this.Y_UPPER_BOUND = yUpperBound;
+        this.SPEED_FACTOR = speedFactor;
+        this.INITIAL_SPAWN_RATE = initialSpawnRate;
+    }
+
+    /**
+     * Read a difficulty from a spec, starting from the defaults
+     *
+     * @param spec Comma separated key=value pairs (gaps, ylow, yhigh, factor, spawn)
+     * @return Returns the difficulty
+     */
+    public static Difficulty parse(String spec) {
+        int[] gaps = DEFAULT.FIXED_GAPS;
+        int yLow = DEFAULT.Y_LOWER_BOUND;
+        int yHigh = DEFAULT.Y_UPPER_BOUND;
+        double factor = DEFAULT.SPEED_FACTOR;
+        int spawn = DEFAULT.INITIAL_SPAWN_RATE;
+
+        for (String pair : spec.split(",")) {
+            if (pair.isEmpty())
+                continue;
+            String[] parts = pair.split("=", 2);
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Expected key=value in " + spec);
+
+            switch (parts[0]) {
+                case "gaps":
+                    gaps = Arrays.stream(parts[1].split("/")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "ylow":
+                    yLow = Integer.parseInt(parts[1]);
+                    break;
+                case "yhigh":
+                    yHigh = Integer.parseInt(parts[1]);
+                    break;
+                case "factor":
+                    factor = Double.parseDouble(parts[1]);
+                    break;
+                case "spawn":
+                    spawn = Integer.parseInt(parts[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown difficulty key " + parts[0]);
+            }
+        }
+        return new Difficulty(gaps, yLow, yHigh, factor, spawn);
+    }
+
+    /**
+     * Returns one of the gap centres of levels with fixed gaps
+     *
+     * @param index Index of the gap, from 0 to getFixedGapCount() - 1
+     * @return Returns the gap centre
+     */
+    public int getFixedGap(int index) {
+        return FIXED_GAPS[index];
+    }
+
+    /**
+     * Returns the number of fixed gap centres
+     *
+     * @return Returns the gap count
+     */
+    public int getFixedGapCount() {
+        return FIXED_GAPS.length;
+    }
+
+    /**
+     * Returns the y-axis lower bound for randomized y values
+     *
+     * @return Returns the lower bound
+     */
+    public int getYLowerBound() {
+        return Y_LOWER_BOUND;
+    }
+
+    /**
+     * Returns the y-axis upper bound for randomized y values
+     *
+     * @return Returns the upper bound
+     */
+    public int getYUpperBound() {
+        return Y_UPPER_BOUND;
+    }
+
+    /**
+     * Returns the speed (and spawn rate) multiplier between timescales
+     *
+     * @return Returns the speed factor
+     */
+    public double getSpeedFactor() {
+        return SPEED_FACTOR;
+    }
+
+    /**
+     * Returns the frames between pipe spawns at the first timescale
+     *
+     * @return Returns the spawn rate
+     */
+    public int getInitialSpawnRate() {
+        return INITIAL_SPAWN_RATE;
+    }
+
+    /**
+     * Write the parameters of this difficulty
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putInt(FIXED_GAPS.length);
+        for (int gap : FIXED_GAPS)
+            out.putInt(gap);
+        out.putInt(Y_LOWER_BOUND);
+        out.putInt(Y_UPPER_BOUND);
+        out.putDouble(SPEED_FACTOR);
+        out.putInt(INITIAL_SPAWN_RATE);
+    }
+
+    /**
+     * Read a difficulty written by writeState
+     *
+     * @param in The buffer to read from
+     * @return Returns the difficulty
+     */
+    public static Difficulty readDifficulty(ByteBuffer in) {
+        int[] gaps = new int[in.getInt()];
+        for (int i = 0; i < gaps.length; ++i)
+            gaps[i] = in.getInt();
+        return new Difficulty(gaps, in.getInt(), in.getInt(), in.getDouble(), in.getInt());
+    }
+
+    /**
+     * Returns the spec of this difficulty
+     *
+     * @return Returns the spec, as accepted by parse
+     */
+    @Override
+    public String toString() {
+        StringBuilder gaps = new StringBuilder();
+        for (int i = 0; i < FIXED_GAPS.length; ++i)
+            gaps.append((i == 0) ? "" : "/").append(FIXED_GAPS[i]);
+        return "gaps=" + gaps + ",ylow=" + Y_LOWER_BOUND + ",yhigh=" + Y_UPPER_BOUND
+                + ",factor=" + SPEED_FACTOR + ",spawn=" + INITIAL_SPAWN_RATE;
+    }
+}
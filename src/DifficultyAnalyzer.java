@@ -0,0 +1,223 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Command line Monte Carlo analyzer that plays many headless sessions for each
+ * difficulty with a flap policy, spread over a fork-join pool, and reports the
+ * survival curve, score distribution and how the sessions ended.
+ *
+ * Usage: DifficultyAnalyzer [--sessions N] [--policy autopilot|noisy|random]
+ * [--seed N] [--threads N] [--max-seconds N] [--csv FILE] [difficulty spec...]
+ *
+ * The default policy is the autopilot, which reaches the pipes and mostly
+ * survives, so the report reflects the difficulty rather than the policy.
+ *
+ * Every session's seed is derived from the run seed and the session's index, so
+ * the results do not depend on the number of threads.
+ */
+public class DifficultyAnalyzer {
+    private static final int DEFAULT_SESSIONS = 100000;
+    private static final int DEFAULT_MAX_SECONDS = 120;
+    private static final int[] REPORTED_SECONDS = {5, 10, 20, 30, 60, 120};
+    private static final List<String> POLICIES = List.of("autopilot", "noisy", "random");
+
+    // Sessions played by one task without splitting further
+    private static final int SESSIONS_PER_TASK = 256;
+
+    // Mixes the session index into the run seed
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // Chance that the noisy policy ignores the autopilot on a tick, and that the
+    // random policy flaps on a tick
+    private static final double NOISE = 0.1;
+    private static final double RANDOM_FLAP = 0.125;
+
+    /**
+     * The entry point for the analyzer.
+     *
+     * @param args Command line arguments (see the class comment)
+     * @throws IOException If the CSV file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int sessions = DEFAULT_SESSIONS;
+        String policy = "autopilot";
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxSeconds = DEFAULT_MAX_SECONDS;
+        String csvPath = null;
+        List<Difficulty> difficulties = new ArrayList<>();
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--policy":
+                    policy = args[++i];
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-seconds":
+                    maxSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--csv":
+                    csvPath = args[++i];
+                    break;
+                default:
+                    difficulties.add(Difficulty.parse(args[i]));
+            }
+        }
+        if (difficulties.isEmpty())
+            difficulties.add(Difficulty.DEFAULT);
+        if (!POLICIES.contains(policy))
+            throw new IllegalArgumentException("Unknown policy " + policy);
+
+        System.out.printf("seed=%d policy=%s sessions=%d threads=%d maxSeconds=%d%n",
+                seed, policy, sessions, threads, maxSeconds);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<SessionStats> results = new ArrayList<>();
+        for (Difficulty difficulty : difficulties) {
+            long start = System.nanoTime();
+            SessionStats stats = pool.invoke(
+                    new Sessions(difficulty, policy, seed, maxSeconds, 0, sessions));
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            results.add(stats);
+            report(difficulty, stats, elapsedSeconds);
+        }
+        pool.shutdown();
+
+        if (csvPath != null) {
+            try (PrintWriter out = new PrintWriter(new FileWriter(csvPath))) {
+                out.println("difficulty,kind,x,value");
+                for (int i = 0; i < difficulties.size(); ++i)
+                    results.get(i).writeCsv(out, difficulties.get(i).toString());
+            }
+            System.out.println("results written to " + csvPath);
+        }
+    }
+
+    /**
+     * Print the results of one difficulty
+     *
+     * @param difficulty The difficulty played
+     * @param stats The results of its sessions
+     * @param elapsedSeconds Real time taken to play them
+     */
+    private static void report(Difficulty difficulty, SessionStats stats, double elapsedSeconds) {
+        System.out.println("difficulty " + difficulty);
+        System.out.printf("  sessions=%d elapsedS=%.2f sessionsPerS=%.0f ticksPerS=%.0f%n", stats.getSessions(),
+                elapsedSeconds, stats.getSessions() / elapsedSeconds, stats.getTicks() / elapsedSeconds);
+        System.out.printf("  outcomes hitPipe=%.4f outOfBounds=%.4f won=%.4f timedOut=%.4f%n",
+                stats.getOutcomeFraction(World.OUTCOME.HIT_PIPE),
+                stats.getOutcomeFraction(World.OUTCOME.OUT_OF_BOUNDS),
+                stats.getOutcomeFraction(World.OUTCOME.WON),
+                stats.getOutcomeFraction(World.OUTCOME.PLAYING));
+        System.out.printf("  score mean=%.2f p50=%d p90=%d p99=%d%n", stats.getMeanScore(),
+                stats.getScorePercentile(50), stats.getScorePercentile(90), stats.getScorePercentile(99));
+
+        StringBuilder survival = new StringBuilder("  survival");
+        for (int seconds : REPORTED_SECONDS)
+            survival.append(String.format(" %ds=%.4f", seconds, stats.getSurvival(seconds)));
+        System.out.println(survival);
+    }
+
+    /**
+     * Play one session to its end (or the time limit)
+     *
+     * @param difficulty The difficulty to play at
+     * @param policy Name of the flap policy
+     * @param random The random stream of the session (world seed and policy)
+     * @param maxTicks The most ticks to play
+     * @param stats The statistics to add the session to
+     */
+    private static void play(Difficulty difficulty, String policy, SplittableRandom random, int maxTicks,
+                             SessionStats stats) {
+        World world = new World(random.nextLong(), difficulty);
+        int ticks = 0;
+        while (!world.isGameOver() && ticks < maxTicks) {
+            world.update(act(policy, world, random));
+            ticks += 1;
+        }
+        stats.add(world.getOutcome(), ticks, world.getTotalScore());
+    }
+
+    /**
+     * Returns the input of a policy for the next tick
+     *
+     * @param policy Name of the policy (autopilot, noisy or random)
+     * @param world The session being played
+     * @param random The random stream of the session
+     * @return Returns the input bitmask
+     */
+    private static int act(String policy, World world, SplittableRandom random) {
+        switch (policy) {
+            case "autopilot":
+                return Soak.autopilot(world);
+            case "noisy":
+                if (random.nextDouble() < NOISE)
+                    return random.nextBoolean() ? World.SPACE : 0;
+                return Soak.autopilot(world);
+            case "random":
+                if (!world.isGameOn())
+                    return World.SPACE;
+                return (random.nextDouble() < RANDOM_FLAP) ? World.SPACE : 0;
+            default:
+                throw new IllegalArgumentException("Unknown policy " + policy);
+        }
+    }
+
+    /**
+     * Task playing a range of sessions, split in halves until small enough
+     */
+    private static class Sessions extends RecursiveTask<SessionStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final Difficulty DIFFICULTY;
+        private final String POLICY;
+        private final long SEED;
+        private final int MAX_SECONDS;
+        private final int FIRST;
+        private final int END;
+
+        /**
+         * Create a task for the sessions from first (inclusive) to end (exclusive)
+         */
+        Sessions(Difficulty difficulty, String policy, long seed, int maxSeconds, int first, int end) {
+            this.DIFFICULTY = difficulty;
+            this.POLICY = policy;
+            this.SEED = seed;
+            this.MAX_SECONDS = maxSeconds;
+            this.FIRST = first;
+            this.END = end;
+        }
+
+        @Override
+        protected SessionStats compute() {
+            if ((END - FIRST) > SESSIONS_PER_TASK) {
+                int middle = (FIRST + END) >>> 1;
+                Sessions left = new Sessions(DIFFICULTY, POLICY, SEED, MAX_SECONDS, FIRST, middle);
+                left.fork();
+                SessionStats right = new Sessions(DIFFICULTY, POLICY, SEED, MAX_SECONDS, middle, END).compute();
+                return right.merge(left.join());
+            }
+
+            SessionStats stats = new SessionStats(MAX_SECONDS, GameLoop.DEFAULT_TICK_RATE);
+            int maxTicks = MAX_SECONDS * GameLoop.DEFAULT_TICK_RATE;
+            for (int session = FIRST; session < END; ++session)
+                play(DIFFICULTY, POLICY, new SplittableRandom(SEED + (session * GOLDEN_GAMMA)), maxTicks, stats);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The course of an endless level, made of spawn schedule chunks of CHUNK_SIZE
+ * pipe sets. A background thread generates chunks ahead of play and hands them
+ * over through a bounded single-producer/single-consumer queue; passed chunks
+ * are handed back through a second queue to be refilled, so a course of any
+ * length uses the same few chunks. Each chunk is drawn from streams seeded by
+ * the course seed and the chunk number, so the course is the same however far
+ * ahead generation runs, and can be restarted from any chunk.
+ */
+public class EndlessCourse {
+    /**
+     * Number of pipe sets in a chunk
+     */
+    public static final int CHUNK_SIZE = 64;
+
+    // Chunks generated ahead of play
+    private static final int AHEAD = 4;
+    // Time to wait for the generator when no chunk is ready
+    private static final long STALL_NANOS = 20000;
+
+    // One generator thread serves every course
+    private static final ExecutorService GENERATOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "course generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Level LEVEL;
+    private final Difficulty DIFFICULTY;
+    private final long SEED;
+    private final SpscQueue<SpawnSchedule> READY;
+    private final SpscQueue<SpawnSchedule> RETIRED;
+    private final AtomicBoolean SCHEDULED;
+
+    // Owned by the generator
+    private long generated;
+    private volatile int created;
+
+    // Owned by the player of the course
+    private long taken;
+    private long stalls;
+
+    /**
+     * Create a course and start generating its chunks
+     *
+     * @param level The level the course spawns
+     * @param difficulty The spawning parameters of the session
+     * @param seed The course seed of the session
+     * @param firstChunk The number of the first chunk to play (0 for a new course)
+     */
+    public EndlessCourse(Level level, Difficulty difficulty, long seed, long firstChunk) {
+        this.LEVEL = level;
+        this.DIFFICULTY = difficulty;
+        this.SEED = seed;
+        READY = new SpscQueue<>(AHEAD);
+        RETIRED = new SpscQueue<>(AHEAD + 1);
+        SCHEDULED = new AtomicBoolean();
+
+        generated = firstChunk;
+        taken = firstChunk;
+        requestChunks();
+    }
+
+    /**
+     * Returns the next chunk of the course, handing back the chunk that was played
+     * (player only). Waits for the generator if it has fallen behind.
+     *
+     * @param played The chunk that was played, to be refilled (may be null)
+     * @return Returns the next chunk
+     */
+    public SpawnSchedule next(SpawnSchedule played) {
+        if ((played != null) && (played.getLength() == CHUNK_SIZE))
+            RETIRED.offer(played);
+
+        SpawnSchedule chunk = READY.poll();
+        while (chunk == null) {
+            stalls += 1;
+            requestChunks();
+            LockSupport.parkNanos(STALL_NANOS);
+            chunk = READY.poll();
+        }
+        taken += 1;
+        requestChunks();
+        return chunk;
+    }
+
+    /**
+     * Have the generator fill the queue, unless it is already going to
+     */
+    private void requestChunks() {
+        if (SCHEDULED.compareAndSet(false, true))
+            GENERATOR.execute(this::generate);
+    }
+
+    /**
+     * Fill the queue with the next chunks (generator only)
+     */
+    private void generate() {
+        // A request made from here on schedules another pass
+        SCHEDULED.set(false);
+
+        while (!READY.isFull()) {
+            SpawnSchedule chunk = RETIRED.poll();
+            if (chunk == null) {
+                chunk = new SpawnSchedule(LEVEL, DIFFICULTY, CHUNK_SIZE);
+                created += 1;
+            }
+
+            RandomStream root = new RandomStream(SEED + generated);
+            chunk.compile(root.split(), root.split(), root.split());
+            READY.offer(chunk);
+            generated += 1;
+        }
+    }
+
+    /**
+     * Returns the number of the next chunk to be played (to restart the course from it)
+     *
+     * @return Returns the chunk number
+     */
+    public long getNextChunk() {
+        return taken;
+    }
+
+    /**
+     * Returns the number of times play had to wait for a chunk
+     *
+     * @return Returns the stall count
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /**
+     * Returns the number of chunks allocated by the generator
+     *
+     * @return Returns the chunk count
+     */
+    public int getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns the chunk statistics of the course
+     *
+     * @return Returns the chunks created, played and ready, and the stalls
+     */
+    @Override
+    public String toString() {
+        return String.format("created=%d taken=%d ready=%d stalls=%d", created, taken, READY.size(), stalls);
+    }
+}
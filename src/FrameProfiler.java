@@ -0,0 +1,191 @@
+import bagel.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Times the phases of a frame (and of each simulation tick) into one histogram
+ * per phase, shows their p50/p99/max in an on-screen overlay and writes the
+ * histograms to a CSV file. Each phase is only recorded by one thread; the
+ * overlay may read the simulation's phases while they are being recorded.
+ */
+public class FrameProfiler {
+    /**
+     * Phase: reading the keyboard
+     */
+    public static final int INPUT = 0;
+    /**
+     * Phase: spawning, gravity and the key responses of a tick, up to the collision sweep
+     */
+    public static final int UPDATE = 1;
+    /**
+     * Phase: GameManager.pickWeapon
+     */
+    public static final int PICK_WEAPON = 2;
+    /**
+     * Phase: GameManager.shootWeapon
+     */
+    public static final int SHOOT_WEAPON = 3;
+    /**
+     * Phase: World.checkGameOver
+     */
+    public static final int CHECK_GAME_OVER = 4;
+    /**
+     * Phase: GameManager.leftShift
+     */
+    public static final int LEFT_SHIFT = 5;
+    /**
+     * Phase: recording the background into the frame snapshot
+     */
+    public static final int BACKGROUND = 6;
+    /**
+     * Phase: recording GameManager.drawObjects into the frame snapshot
+     */
+    public static final int DRAW_OBJECTS = 7;
+    /**
+     * Phase: drawing the frame snapshot and flushing the queued sprites
+     */
+    public static final int FLUSH = 8;
+    /**
+     * Phase: drawing the messages
+     */
+    public static final int MESSAGES = 9;
+    /**
+     * Phase: the whole of ShadowFlap.update
+     */
+    public static final int FRAME = 10;
+    /**
+     * Phase: the tick that loads the next level, with the swap to its background
+     */
+    public static final int LEVEL_UP = 11;
+    /**
+     * Phase: loading the assets of the next level on the prefetch thread
+     */
+    public static final int PREFETCH = 12;
+    /**
+     * Phase: creating the image of one prefetched sprite on the render thread
+     */
+    public static final int IMAGE = 13;
+
+    private static final String[] NAMES = {
+            "input", "update", "pickWeapon", "shootWeapon", "checkGameOver", "leftShift",
+            "background", "drawObjects", "flush", "messages", "frame", "levelUp", "prefetch", "image"
+    };
+
+    // Overlay
+    private final int FONT_SIZE = 16;
+    private final double OVERLAY_X = 10;
+    private final double OVERLAY_Y = 20;
+    private final double LINE_HEIGHT = 18;
+    private final int REFRESH_FRAMES = 30;
+
+    private final Histogram[] HISTOGRAMS;
+    private final String[] LINES;
+    private Font font;
+    private boolean overlayShown;
+    private int framesSinceRefresh;
+
+    /**
+     * Create a profiler with empty histograms and the overlay hidden
+     */
+    public FrameProfiler() {
+        HISTOGRAMS = new Histogram[NAMES.length];
+        for (int i = 0; i < NAMES.length; ++i)
+            HISTOGRAMS[i] = new Histogram();
+        LINES = new String[NAMES.length + 1];
+        overlayShown = false;
+        framesSinceRefresh = REFRESH_FRAMES;
+    }
+
+    /**
+     * Record the time of a phase that started at the given time and ends now
+     *
+     * @param phase The phase that ended
+     * @param start The System.nanoTime() the phase started at
+     * @return Returns the current System.nanoTime(), the start of the next phase
+     */
+    public long lap(int phase, long start) {
+        long now = System.nanoTime();
+        HISTOGRAMS[phase].record(now - start);
+        return now;
+    }
+
+    /**
+     * Record a duration of a phase
+     *
+     * @param phase The phase
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(int phase, long nanos) {
+        HISTOGRAMS[phase].record(nanos);
+    }
+
+    /**
+     * Returns the histogram of a phase
+     *
+     * @param phase The phase
+     * @return Returns the histogram
+     */
+    public Histogram getHistogram(int phase) {
+        return HISTOGRAMS[phase];
+    }
+
+    /**
+     * Show the overlay if hidden, hide it if shown
+     */
+    public void toggleOverlay() {
+        overlayShown = !overlayShown;
+        framesSinceRefresh = REFRESH_FRAMES;
+    }
+
+    /**
+     * Draw the overlay (if shown), refreshing its text a few times per second
+     */
+    public void drawOverlay() {
+        if (!overlayShown)
+            return;
+        if (font == null)
+            font = new Font("res/font/slkscr.ttf", FONT_SIZE);
+
+        if (++framesSinceRefresh >= REFRESH_FRAMES) {
+            framesSinceRefresh = 0;
+            LINES[0] = "phase  p50  p99  max (us)";
+            for (int i = 0; i < NAMES.length; ++i)
+                LINES[i + 1] = String.format("%s  %.1f  %.1f  %.1f", NAMES[i],
+                        HISTOGRAMS[i].getPercentile(50) / 1e3, HISTOGRAMS[i].getPercentile(99) / 1e3,
+                        HISTOGRAMS[i].getMax() / 1e3);
+        }
+
+        for (int i = 0; i < LINES.length; ++i)
+            font.drawString(LINES[i], OVERLAY_X, OVERLAY_Y + (i * LINE_HEIGHT));
+    }
+
+    /**
+     * Write the buckets of every phase to a CSV file (phase,lowNs,highNs,count)
+     *
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeCsv(String path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path))) {
+            out.println("phase,lowNs,highNs,count");
+            for (int i = 0; i < NAMES.length; ++i)
+                HISTOGRAMS[i].writeCsv(out, NAMES[i]);
+        }
+    }
+
+    /**
+     * Returns one line per phase with its count, p50, p99 and max in microseconds
+     *
+     * @return Returns the summary
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < NAMES.length; ++i)
+            builder.append(String.format("%s count=%d p50=%.1f p99=%.1f max=%.1f (us)%n", NAMES[i],
+                    HISTOGRAMS[i].getCount(), HISTOGRAMS[i].getPercentile(50) / 1e3,
+                    HISTOGRAMS[i].getPercentile(99) / 1e3, HISTOGRAMS[i].getMax() / 1e3));
+        return builder.toString();
+    }
+}
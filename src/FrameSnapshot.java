@@ -0,0 +1,262 @@
+import bagel.*;
+
+import java.util.Arrays;
+
+/**
+ * Everything needed to draw one simulation tick: the sprite draws of the
+ * background and objects at both the previous and the current tick (so they can
+ * be interpolated), and the state shown by the messages. Filled by the
+ * simulation thread and drawn by the render thread; snapshots are reused, and
+ * a published snapshot is not modified while it can be read.
+ */
+public class FrameSnapshot implements Renderer {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Recorded draws
+    private Sprite[] sprites;
+    private DrawOptions[] options;
+    private int[] layers;
+    private boolean[] fromTopLeft;
+    private double[] previousXs;
+    private double[] previousYs;
+    private double[] xs;
+    private double[] ys;
+    private int count;
+
+    // Recording of the current tick's positions (second pass)
+    private boolean recordingCurrent;
+    private int cursor;
+    private boolean matched;
+
+    // State shown by the messages
+    private int level;
+    private boolean weapons;
+    private int score;
+    private boolean gameOn;
+    private boolean gameOver;
+    private boolean gameWon;
+    private boolean loaded;
+    private long publishTime;
+
+    /**
+     * Create an empty snapshot
+     */
+    public FrameSnapshot() {
+        sprites = new Sprite[INITIAL_CAPACITY];
+        options = new DrawOptions[INITIAL_CAPACITY];
+        layers = new int[INITIAL_CAPACITY];
+        fromTopLeft = new boolean[INITIAL_CAPACITY];
+        previousXs = new double[INITIAL_CAPACITY];
+        previousYs = new double[INITIAL_CAPACITY];
+        xs = new double[INITIAL_CAPACITY];
+        ys = new double[INITIAL_CAPACITY];
+        count = 0;
+        matched = true;
+    }
+
+    /**
+     * Record the world and background as they are after the last tick
+     *
+     * @param world The world to record
+     * @param background The background of its level
+     * @param profiler The profiler timing the background and objects (may be null)
+     */
+    public void capture(World world, Background background, FrameProfiler profiler) {
+        level = world.getLevel();
+        weapons = world.getLevelDefinition().hasWeapons();
+        score = world.getScore();
+        gameOn = world.isGameOn();
+        gameOver = world.isGameOver();
+        gameWon = world.isGameWon();
+        loaded = world.isLoaded();
+        boolean playing = gameOn && !gameOver;
+
+        // Previous positions, then current positions into the same entries
+        Sprite.setRenderer(this);
+        count = 0;
+        matched = true;
+        long backgroundTime = 0;
+        long objectsTime = 0;
+        for (int pass = 0; pass < 2; ++pass) {
+            recordingCurrent = (pass == 1);
+            cursor = 0;
+
+            long start = System.nanoTime();
+            background.displayBackground(pass);
+            long middle = System.nanoTime();
+            if (playing)
+                world.getManager().drawObjects(pass);
+            backgroundTime += middle - start;
+            objectsTime += System.nanoTime() - middle;
+        }
+        matched = matched && (cursor == count);
+        recordingCurrent = false;
+
+        if (profiler != null) {
+            profiler.record(FrameProfiler.BACKGROUND, backgroundTime);
+            if (playing)
+                profiler.record(FrameProfiler.DRAW_OBJECTS, objectsTime);
+        }
+    }
+
+    /**
+     * Stamp the snapshot with the time it is published at
+     *
+     * @param time The System.nanoTime() of publication
+     */
+    public void setPublishTime(long time) {
+        publishTime = time;
+    }
+
+    /**
+     * Draw the recorded sprites between the previous and current tick
+     *
+     * @param target The renderer to draw with
+     * @param alpha Interpolation factor between the two ticks
+     */
+    public void render(Renderer target, double alpha) {
+        // Draws that did not line up between the ticks are drawn where they are now
+        double factor = matched ? alpha : 1;
+        for (int i = 0; i < count; ++i) {
+            double x = previousXs[i] + ((xs[i] - previousXs[i]) * factor);
+            double y = previousYs[i] + ((ys[i] - previousYs[i]) * factor);
+            if (fromTopLeft[i])
+                target.drawFromTopLeft(sprites[i], x, y, layers[i]);
+            else
+                target.draw(sprites[i], x, y, options[i], layers[i]);
+        }
+    }
+
+    @Override
+    public void draw(Sprite sprite, double x, double y, DrawOptions options, int layer) {
+        record(sprite, x, y, options, false, layer);
+    }
+
+    @Override
+    public void drawFromTopLeft(Sprite sprite, double x, double y, int layer) {
+        record(sprite, x, y, null, true, layer);
+    }
+
+    /**
+     * Add a draw of the previous tick, or fill in the current position of the matching one
+     */
+    private void record(Sprite sprite, double x, double y, DrawOptions drawOptions, boolean topLeft, int layer) {
+        if (recordingCurrent) {
+            if (cursor < count && sprites[cursor] == sprite && layers[cursor] == layer) {
+                xs[cursor] = x;
+                ys[cursor] = y;
+            } else
+                matched = false;
+            cursor += 1;
+            return;
+        }
+
+        if (count == sprites.length)
+            grow();
+        sprites[count] = sprite;
+        options[count] = drawOptions;
+        layers[count] = layer;
+        fromTopLeft[count] = topLeft;
+        previousXs[count] = x;
+        previousYs[count] = y;
+        xs[count] = x;
+        ys[count] = y;
+        count += 1;
+    }
+
+    /**
+     * Double the capacity of the recorded draws
+     */
+    private void grow() {
+        int capacity = sprites.length * 2;
+        sprites = Arrays.copyOf(sprites, capacity);
+        options = Arrays.copyOf(options, capacity);
+        layers = Arrays.copyOf(layers, capacity);
+        fromTopLeft = Arrays.copyOf(fromTopLeft, capacity);
+        previousXs = Arrays.copyOf(previousXs, capacity);
+        previousYs = Arrays.copyOf(previousYs, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+    }
+
+    /**
+     * Returns the number of sprite draws recorded
+     *
+     * @return Returns the draw count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the System.nanoTime() the snapshot was published at
+     *
+     * @return Returns the publish time
+     */
+    public long getPublishTime() {
+        return publishTime;
+    }
+
+    /**
+     * Returns the level being played
+     *
+     * @return Returns the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns true if the level being played has weapons
+     *
+     * @return Returns true if the level has weapons
+     */
+    public boolean hasWeapons() {
+        return weapons;
+    }
+
+    /**
+     * Returns the score of the current level
+     *
+     * @return Returns the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns true if the game is running
+     *
+     * @return Returns true if the game is on
+     */
+    public boolean isGameOn() {
+        return gameOn;
+    }
+
+    /**
+     * Returns true if the session has ended
+     *
+     * @return Returns true if the game is over
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Returns true if the session was won
+     *
+     * @return Returns true if the game is won
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
+    /**
+     * Returns true if the objects of the current level are loaded
+     *
+     * @return Returns true if loaded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Fixed timestep accumulator: converts the real time between rendered frames
+ * into a whole number of simulation ticks at a fixed rate, and reports how far
+ * the display is between the last two ticks for render interpolation
+ */
+public class GameLoop {
+    /**
+     * The default number of simulation ticks per second
+     */
+    public static final int DEFAULT_TICK_RATE = 60;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    // At most this many ticks are run for one rendered frame (avoids a spiral after a stall)
+    private final int MAX_TICKS_PER_FRAME = 5;
+
+    private final long STEP;
+    private long accumulator;
+    private long lastTime;
+    private boolean started;
+
+    /**
+     * Create a loop ticking at the given rate
+     *
+     * @param tickRate Number of simulation ticks per second (at least 1, and at most one per nanosecond)
+     */
+    public GameLoop(int tickRate) {
+        if (tickRate <= 0 || tickRate > NANOS_PER_SECOND)
+            throw new IllegalArgumentException("Invalid tick rate " + tickRate);
+        STEP = NANOS_PER_SECOND / tickRate;
+        accumulator = 0;
+        started = false;
+    }
+
+    /**
+     * Add the time passed since the last frame and take the ticks now due
+     *
+     * @param now The current time in nanoseconds
+     * @return Returns the number of ticks to simulate this frame
+     */
+    public int advance(long now) {
+        if (!started) {
+            // First frame runs a single tick
+            started = true;
+            lastTime = now - STEP;
+        }
+        accumulator += now - lastTime;
+        lastTime = now;
+
+        int ticks = (int) Math.min(accumulator / STEP, MAX_TICKS_PER_FRAME);
+        accumulator -= ticks * STEP;
+
+        // Drop time we could not catch up on
+        if (accumulator >= STEP)
+            accumulator = STEP - 1;
+        return ticks;
+    }
+
+    /**
+     * Returns how far the current frame is between the last tick and the next one
+     *
+     * @return Returns the interpolation factor from 0 to 1
+     */
+    public double getAlpha() {
+        return (double) accumulator / STEP;
+    }
+
+    /**
+     * Returns the time left until the next tick is due
+     *
+     * @return Returns the time in nanoseconds
+     */
+    public long getTimeToNextTick() {
+        return STEP - accumulator;
+    }
+
+    /**
+     * Returns the length of one tick
+     *
+     * @return Returns the tick length in nanoseconds
+     */
+    public long getStep() {
+        return STEP;
+    }
+}
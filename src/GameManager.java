@@ -1,5 +1,4 @@
-import java.util.*;
-import bagel.Window;
+import java.nio.ByteBuffer;
 
 /**
  * Manages the game by controlling pipe and weapon arrays, changing levels,
@@ -16,66 +15,119 @@ public class GameManager {
     /**
      * The maximum timescale possible
      */
-    private static final int MAX_TIMESCALE = 5;
+    private static final int MAX_TIMESCALE = 6;
 
     /**
-     * The y-axis lower bound for randomized y values
+     * Broadphase layer of birds
      */
-    public static final int Y_LOWER_BOUND = 100;
-
+    public static final int BIRD_LAYER = 1;
     /**
-     * The y-axis upper bound for randomized y values
+     * Broadphase layer of weapons (pickups, held and shot)
      */
-    public static final int Y_UPPER_BOUND = 500;
-
+    public static final int WEAPON_LAYER = 1 << 1;
     /**
-     * An array of speed for each timescale, create w.r.t initial speed
+     * Broadphase layer of pipes
      */
-    public static final double[] SPEED = new double[MAX_TIMESCALE];
+    public static final int PIPE_LAYER = 1 << 2;
     /**
-     * An array of time frames spawned for each timescale, created w.r.t. initial time frame
+     * Broadphase layer of lit flames
      */
-    public static final int[] PIPE_SPAWN_TIME = new int[MAX_TIMESCALE];
+    public static final int FLAME_LAYER = 1 << 3;
 
-    /**
-     * The timescale of the game used by all classes
-     */
-    public static int timeScale;
-    /**
-     * The move speed for the current timescale
-     */
-    public static double moveSpeed;
+    // Speed and spawn rate of the session
+    private final Difficulty DIFFICULTY;
+    private final double[] SPEED = new double[MAX_TIMESCALE];
+    private final int[] PIPE_SPAWN_TIME = new int[MAX_TIMESCALE];
+    private int timeScale;
+    private double moveSpeed;
 
     // Game variables
     private final Bird BIRD;
-    private final Queue<Weapon> WEAPONS;
-    private final Queue<PipeSet> GAME_PIPES;
+    private final RingBuffer<Weapon> WEAPONS;
+    private final RingBuffer<PipeSet> GAME_PIPES;
 
     private int score;
     private int frameCounter;
     private final int LEVEL;
+    private final SessionRandom RANDOM;
+    private SpawnSchedule schedule;
+    private EndlessCourse course;
     private PipeSet lastPipe;
 
+    // Recycled objects
+    private final Pool<PipeSet> PIPE_POOL;
+    private final Pool<Weapon> ROCK_POOL;
+    private final Pool<Weapon> BOMB_POOL;
+
+    // Collision candidates and their results for the current frame
+    private final Broadphase BROADPHASE;
+    private final RingBuffer<PipeSet> HIT_PIPES;
+    private final RingBuffer<Weapon> SHOT_WEAPONS;
+
     // Constants
-    private final int INITIAL_SPAWN_RATE = 100;
     private final double INITIAL_SPEED = 3.0;
-    private final double SPEED_FACTOR = 1.5;
     private final double ADJUSTMENT = 0.9;
-    private final int[] LEVEL0_GAPS = {100, 300, 500};
+    private final int POOL_CAPACITY = 16;
 
     /**
      * Create a manager with the specified bird and level
      *
+     * @param level Current level being played (its spawn schedule is compiled here)
+     * @param bird Bird in play
+     * @param random The random streams of the session
+     * @param difficulty The spawning parameters of the session
+     */
+    public GameManager(int level, Bird bird, SessionRandom random, Difficulty difficulty) {
+        this(level, bird, random, difficulty, false);
+    }
+
+    /**
+     * Create a manager with the specified bird and level, spawning either the
+     * level's schedule or an endless course
+     *
      * @param level Current level being played
      * @param bird Bird in play
+     * @param random The random streams of the session
+     * @param difficulty The spawning parameters of the session
+     * @param endless True to spawn an endless course, generated in the background
      */
-    public GameManager(int level, Bird bird) {
+    public GameManager(int level, Bird bird, SessionRandom random, Difficulty difficulty, boolean endless) {
         // Load objects
         this.BIRD = bird;
-        GAME_PIPES = new LinkedList<>();
-        WEAPONS = new LinkedList<>();
+        this.RANDOM = random;
+        this.DIFFICULTY = difficulty;
+        GAME_PIPES = new RingBuffer<>();
+        WEAPONS = new RingBuffer<>();
+        PIPE_POOL = new Pool<>(POOL_CAPACITY);
+        ROCK_POOL = new Pool<>(POOL_CAPACITY);
+        BOMB_POOL = new Pool<>(POOL_CAPACITY);
+        BIRD.setRecycler(this::releaseWeapon);
+
+        // Pipe sets are filled as steel where the level has any, so they already carry flames
+        Level definition = Levels.get(level);
+        int material = (definition.getSteelPercent() > 0) ? SpawnSchedule.STEEL : SpawnSchedule.PLASTIC;
+        PIPE_POOL.fill(() -> new PipeSet(material, 0));
+        if (definition.hasWeapons()) {
+            ROCK_POOL.fill(Rock::new);
+            BOMB_POOL.fill(Bomb::new);
+        }
+
+        BROADPHASE = new Broadphase();
+        BROADPHASE.setInteraction(BIRD_LAYER, PIPE_LAYER);
+        BROADPHASE.setInteraction(BIRD_LAYER, FLAME_LAYER);
+        BROADPHASE.setInteraction(BIRD_LAYER, WEAPON_LAYER);
+        BROADPHASE.setInteraction(WEAPON_LAYER, PIPE_LAYER);
+        BROADPHASE.setInteraction(WEAPON_LAYER, FLAME_LAYER);
+        HIT_PIPES = new RingBuffer<>();
+        SHOT_WEAPONS = new RingBuffer<>();
 
         calculateTimeScales();
+        if (endless) {
+            // The first chunk is taken with the first pipe set
+            schedule = new SpawnSchedule(Levels.get(level), difficulty, 0);
+            course = new EndlessCourse(Levels.get(level), difficulty, random.getCourseSeed(), 0);
+        } else
+            schedule = new SpawnSchedule(Levels.get(level), difficulty, random);
 
         score = 0;
         timeScale = 0;
@@ -85,11 +137,41 @@ public class GameManager {
     }
 
     /**
-     * Draw all objects on screen
+     * Start the level again, as a new manager would (drawing its schedule from
+     * where the session's random streams are now), recycling the pipe sets and
+     * weapons in play into the pools
+     */
+    public void reset() {
+        while (!GAME_PIPES.isEmpty())
+            PIPE_POOL.release(GAME_PIPES.poll());
+        while (!WEAPONS.isEmpty())
+            releaseWeapon(WEAPONS.poll());
+        BROADPHASE.clear();
+        HIT_PIPES.clear();
+        SHOT_WEAPONS.clear();
+
+        if (course != null) {
+            schedule = new SpawnSchedule(Levels.get(LEVEL), DIFFICULTY, 0);
+            course = new EndlessCourse(Levels.get(LEVEL), DIFFICULTY, RANDOM.getCourseSeed(), 0);
+        } else
+            schedule.restart();
+
+        score = 0;
+        frameCounter = 0;
+        timeScale = 0;
+        lastPipe = null;
+        moveSpeed = SPEED[timeScale];
+    }
+
+    /**
+     * Advance all objects by one frame
      */
-    public void drawObjects() {
+    public void update() {
         frameCounter += 1;
 
+        // Positions at the end of the last tick, for render interpolation
+        savePositions();
+
         // Add weapons and pipes according to specs
         addObjects();
 
@@ -97,16 +179,42 @@ public class GameManager {
         checkPipeBounds();
         checkWeaponBounds();
 
+        // Update flames of all pipes in queue
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            GAME_PIPES.get(i).update();
+
+        // Move bird and its weapons
+        BIRD.update();
+    }
+
+    /**
+     * Remember the positions of all objects for render interpolation
+     */
+    public void savePositions() {
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            GAME_PIPES.get(i).savePosition();
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).savePosition();
+        BIRD.savePosition();
+    }
+
+    /**
+     * Draw all objects on screen
+     *
+     * @param alpha Interpolation factor between the last two ticks
+     */
+    public void drawObjects(double alpha) {
         // Draw all pipes in queue
-        for(PipeSet pipeSet : GAME_PIPES)
-            pipeSet.drawObjects();
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            GAME_PIPES.get(i).drawObjects(alpha);
 
         // Draw all weapons in queue
-        for (Weapon weapon: WEAPONS)
-            weapon.drawObject();
+        Sprite.setLayer(Renderer.WEAPON_LAYER);
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).drawObject(alpha);
 
         // Draw bird
-        BIRD.drawBird(frameCounter);
+        BIRD.drawBird(frameCounter, alpha);
     }
 
     /**
@@ -114,98 +222,199 @@ public class GameManager {
      */
     public void addObjects() {
         if (GAME_PIPES.isEmpty())
-            lastPipe = addPipeSet();
+            addPipeSet();
         else if ((frameCounter % PIPE_SPAWN_TIME[timeScale]) == 0)
             if (checkDistance())
-                lastPipe = addPipeSet();
+                addPipeSet();
     }
 
     /**
-     * Add new pipe sets to the queue
+     * Add the next pipe set of the spawn schedule (and its weapon) to the queue
      *
      * @return the latest pipe added to the queue
      */
     public PipeSet addPipeSet() {
-        Random rand = new Random();
-        PipeSet tempPipe;
-        // Choose only plastic pipes
-        if (LEVEL == 0) {
-            tempPipe = new PipeSet(LEVEL, LEVEL0_GAPS[rand.nextInt(LEVEL0_GAPS.length)]);
-            GAME_PIPES.add(tempPipe);
-        }
-        else {
-            int randPipe = rand.nextInt(2);
-            int randY = rand.nextInt(Y_UPPER_BOUND - Y_LOWER_BOUND) + Y_LOWER_BOUND;
-            tempPipe = new PipeSet(randPipe, randY);
-            // Add weapon and pipe set
-            GAME_PIPES.add(tempPipe);
-            addWeapon(tempPipe);
-        }
-
+        if ((course != null) && schedule.isFinished())
+            schedule = course.next(schedule);
+        int entry = schedule.next();
+        PipeSet tempPipe = obtainPipeSet(schedule.getMaterial(entry), schedule.getGap(entry));
+        GAME_PIPES.add(tempPipe);
+        if (schedule.getWeapon(entry) != SpawnSchedule.NO_WEAPON)
+            addWeapon(tempPipe, entry);
+
+        lastPipe = tempPipe;
         return tempPipe;
     }
 
     /**
-     * Add new weapon into the queue
+     * Add the weapon of a spawn schedule entry into the queue
      *
      * @param pipeSet the pipe set after which the weapon is initialized
+     * @param entry the entry of the pipe set in the spawn schedule
+     */
+    private void addWeapon(PipeSet pipeSet, int entry) {
+        double placement = schedule.getPlacement(entry);
+        int y = schedule.getWeaponY(entry);
+        Weapon weapon;
+        if (schedule.getWeapon(entry) == SpawnSchedule.ROCK) {
+            weapon = ROCK_POOL.obtain();
+            if (weapon == null)
+                weapon = new Rock(pipeSet, this, placement, y);
+            else
+                weapon.reset(pipeSet, this, placement, y);
+        } else {
+            weapon = BOMB_POOL.obtain();
+            if (weapon == null)
+                weapon = new Bomb(pipeSet, this, placement, y);
+            else
+                weapon.reset(pipeSet, this, placement, y);
+        }
+        WEAPONS.add(weapon);
+    }
+
+    /**
+     * Take a pipe set from the pool, or create one if none are free
+     *
+     * @param material The material of the pipe (plastic/steel)
+     * @param centre The centre of the pipe
+     * @return Returns the initialized pipe set
      */
-    public void addWeapon(PipeSet pipeSet) {
-        Random rand = new Random();
-        if (rand.nextInt(2) == 0)
-            WEAPONS.add(new Rock(pipeSet));
+    private PipeSet obtainPipeSet(int material, int centre) {
+        PipeSet pipeSet = PIPE_POOL.obtain();
+        if (pipeSet == null)
+            return new PipeSet(material, centre);
+        pipeSet.reset(material, centre);
+        return pipeSet;
+    }
+
+    /**
+     * Return a weapon that is no longer in play to the pool of its type
+     *
+     * @param weapon The weapon to recycle
+     */
+    public void releaseWeapon(Weapon weapon) {
+        if (weapon.getType() == Weapon.WEAPON_TYPE.ROCK)
+            ROCK_POOL.release(weapon);
         else
-            WEAPONS.add(new Bomb(pipeSet));
+            BOMB_POOL.release(weapon);
     }
 
     /**
      * Move all objects from right to left on screen
      */
     public void leftShift() {
-        for (PipeSet pipeSet: GAME_PIPES)
-            pipeSet.leftShift();
-        for (Weapon weapon: WEAPONS)
-            weapon.leftShift();
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            GAME_PIPES.get(i).leftShift(moveSpeed);
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).leftShift(moveSpeed);
     }
 
     /**
-     * Check collision between bird and the pipe set that has not been passed
+     * Register the bird, its weapons, pickups and pipes not yet passed with the
+     * broadphase and find the pairs that touched since the last sweep (so fast
+     * objects cannot pass through each other between frames), then start the
+     * next collision step
+     */
+    public void sweepCollisions() {
+        BROADPHASE.clear();
+        BIRD.addBoxes(BROADPHASE);
+
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            if (!GAME_PIPES.get(i).getHasPassed())
+                GAME_PIPES.get(i).addBoxes(BROADPHASE);
+
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            if (!WEAPONS.get(i).getHasPassed())
+                BROADPHASE.add(WEAPONS.get(i).getBox(), WEAPON_LAYER, WEAPONS.get(i));
+
+        BROADPHASE.sweep();
+
+        // Every box moves on from here, registered or not
+        BIRD.clearMotion();
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            GAME_PIPES.get(i).clearMotion();
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).clearMotion();
+    }
+
+    /**
+     * Check collision between the bird (or held weapon) and pipe sets not passed,
+     * and between shot weapons and pipes, using the pairs from the last sweep
+     * (in one pass: each pipe set hit is flagged, and each shot weapon keeps the
+     * earliest pipe it reached)
      *
      * @return Returns true if collision occurs and no lives left
      */
     public boolean checkCollisionAndLives() {
-        for (PipeSet pipeSet: GAME_PIPES) {
-            if (pipeSet.getHasPassed())
+        HIT_PIPES.clear();
+        SHOT_WEAPONS.clear();
+
+        for (int pair = 0; pair < BROADPHASE.getPairCount(); ++pair) {
+            int layer = BROADPHASE.getSecondLayer(pair);
+            if (layer != PIPE_LAYER && layer != FLAME_LAYER)
                 continue;
+            PipeSet pipeSet = (PipeSet) BROADPHASE.getSecond(pair);
 
-            // At the next pipe which has not been passed
-            if (pipeSet.birdWeaponCollision(BIRD)) {
-                BIRD.lifeLost();
-                if (BIRD.hasLives())
-                    GAME_PIPES.remove(pipeSet);
-                else
-                    // Bird has collided and no lives left
-                    return  true;
+            if (BROADPHASE.getFirstLayer(pair) == BIRD_LAYER) {
+                if (pipeSet.markHit())
+                    HIT_PIPES.add(pipeSet);
+                continue;
             }
 
-            // Check if the weapon has collided with pipe when shot
-            if (BIRD.checkWeaponDestruction(pipeSet)) {
-                GAME_PIPES.remove(pipeSet);
-                score += 1;
+            Weapon weapon = (Weapon) BROADPHASE.getFirst(pair);
+            if (weapon.getIsPicked()) {
+                // Held weapon collides as part of the bird
+                if (pipeSet.markHit())
+                    HIT_PIPES.add(pipeSet);
+            } else if (weapon.getIsShot() && (layer == PIPE_LAYER)) {
+                // A fast weapon may reach several pipes; only the first counts
+                if (weapon.recordHit(pipeSet, BROADPHASE.getTime(pair)))
+                    SHOT_WEAPONS.add(weapon);
             }
-            // The next pipe to be checked has not reached bird
-            break;
+        }
+
+        // Bird loses a life for every pipe set hit
+        for (int i = 0; i < HIT_PIPES.size(); ++i) {
+            BIRD.lifeLost();
+            if (!BIRD.hasLives())
+                // Bird has collided and no lives left
+                return true;
+            removePipeSet(HIT_PIPES.get(i));
+        }
+
+        // Shot weapons are used up and destroy the pipe they hit
+        for (int i = 0; i < SHOT_WEAPONS.size(); ++i) {
+            Weapon weapon = SHOT_WEAPONS.get(i);
+            PipeSet pipeSet = weapon.getFirstHit();
+            BIRD.removeWeapon(weapon);
+            // A pipe set already removed this tick scores nothing
+            if (weapon.canDestroy(pipeSet) && removePipeSet(pipeSet))
+                score += 1;
         }
         return false;
     }
 
+    /**
+     * Remove a pipe set from play and recycle it (if it is still in play)
+     *
+     * @param pipeSet The pipe set to remove
+     * @return Returns true if the pipe set was still in play
+     */
+    private boolean removePipeSet(PipeSet pipeSet) {
+        if (!GAME_PIPES.remove(pipeSet))
+            return false;
+        PIPE_POOL.release(pipeSet);
+        return true;
+    }
+
     /**
      * Check if bird has passed the pipe and update score
      *
      * @return Score of the bird
      */
     public int checkPass() {
-        for (PipeSet pipeSet: GAME_PIPES) {
+        for (int i = 0; i < GAME_PIPES.size(); ++i) {
+            PipeSet pipeSet = GAME_PIPES.get(i);
             if (pipeSet.getHasPassed())
                 continue;
             if (pipeSet.checkBirdPass(BIRD))
@@ -213,7 +422,8 @@ public class GameManager {
             break;
         }
 
-        for (Weapon weapon: WEAPONS) {
+        for (int i = 0; i < WEAPONS.size(); ++i) {
+            Weapon weapon = WEAPONS.get(i);
             if (weapon.getHasPassed())
                 continue;
             weapon.checkBirdPass(BIRD);
@@ -230,7 +440,7 @@ public class GameManager {
     public void checkPipeBounds() {
         if (!GAME_PIPES.isEmpty())
             if (GAME_PIPES.peek().checkWindowBounds())
-                GAME_PIPES.remove();
+                PIPE_POOL.release(GAME_PIPES.poll());
     }
 
     /**
@@ -239,7 +449,7 @@ public class GameManager {
     public void checkWeaponBounds() {
         if (!WEAPONS.isEmpty())
             if (WEAPONS.peek().checkWindowBounds())
-                WEAPONS.remove();
+                releaseWeapon(WEAPONS.poll());
     }
 
     /**
@@ -248,26 +458,82 @@ public class GameManager {
      * @return Returns true if there is enough distance between pipes
      */
     public boolean checkDistance() {
-        double distanceFromRight = Window.getWidth() - lastPipe.getX();
-        double distanceBetweenPipes = SPEED[timeScale] * PIPE_SPAWN_TIME[timeScale];
+        double distanceFromRight = World.WIDTH - lastPipe.getX();
+        double distanceBetweenPipes = getPipeDistance();
         return (distanceFromRight >= (distanceBetweenPipes * ADJUSTMENT));
     }
 
+    /**
+     * Returns the next pipe set the bird has not passed yet
+     *
+     * @return Returns the next pipe set, or null if there is none
+     */
+    public PipeSet getNextPipe() {
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            if (!GAME_PIPES.get(i).getHasPassed())
+                return GAME_PIPES.get(i);
+        return null;
+    }
+
+    /**
+     * Returns the first weapon still to be picked up in front of the bird
+     *
+     * @return Returns the next weapon, or null if there is none
+     */
+    public Weapon getNextWeapon() {
+        for (int i = 0; i < WEAPONS.size(); ++i) {
+            Weapon weapon = WEAPONS.get(i);
+            if (!weapon.getHasPassed() && !weapon.getIsPicked() && !weapon.getIsShot())
+                return weapon;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the pool of recycled pipe sets
+     *
+     * @return Returns the pipe set pool
+     */
+    public Pool<PipeSet> getPipePool() {
+        return PIPE_POOL;
+    }
+
+    /**
+     * Returns the pool of recycled rocks
+     *
+     * @return Returns the rock pool
+     */
+    public Pool<Weapon> getRockPool() {
+        return ROCK_POOL;
+    }
+
+    /**
+     * Returns the pool of recycled bombs
+     *
+     * @return Returns the bomb pool
+     */
+    public Pool<Weapon> getBombPool() {
+        return BOMB_POOL;
+    }
+
     /**
      * Check if the weapon has been picked, changes properties of bird and weapon
      */
     public void pickWeapon() {
         if (!BIRD.getHasPickedWeapon())
-            for (Weapon weapon : WEAPONS) {
-                if (weapon.getHasPassed())
+            for (int pair = 0; pair < BROADPHASE.getPairCount(); ++pair) {
+                if (BROADPHASE.getFirstLayer(pair) != BIRD_LAYER || BROADPHASE.getSecondLayer(pair) != WEAPON_LAYER)
                     continue;
 
-                if (weapon.checkPickUp(BIRD)) {
-                    weapon.setIsPicked(true);
-                    BIRD.setWeapon(weapon);
-                    WEAPONS.remove(weapon);
-                    break;
-                }
+                // Ignore weapons already held or shot by the bird
+                Weapon weapon = (Weapon) BROADPHASE.getSecond(pair);
+                if (weapon.getIsPicked() || weapon.getIsShot())
+                    continue;
+
+                weapon.setIsPicked(true);
+                BIRD.setWeapon(weapon);
+                WEAPONS.remove(weapon);
+                break;
             }
     }
 
@@ -286,12 +552,13 @@ public class GameManager {
      * Initialize speed/spawn rate for all timescales
      */
     public void calculateTimeScales() {
+        double speedFactor = DIFFICULTY.getSpeedFactor();
         SPEED[0] = INITIAL_SPEED;
-        PIPE_SPAWN_TIME[0] = INITIAL_SPAWN_RATE;
+        PIPE_SPAWN_TIME[0] = DIFFICULTY.getInitialSpawnRate();
 
         for (int i = 1; i < MAX_TIMESCALE; ++i) {
-            SPEED[i] = SPEED[i-1] * SPEED_FACTOR;
-            PIPE_SPAWN_TIME[i] = (int) Math.round(PIPE_SPAWN_TIME[i-1] / SPEED_FACTOR);
+            SPEED[i] = SPEED[i-1] * speedFactor;
+            PIPE_SPAWN_TIME[i] = Math.max((int) Math.round(PIPE_SPAWN_TIME[i-1] / speedFactor), 1);
         }
     }
 
@@ -315,7 +582,7 @@ public class GameManager {
      */
     public void slowDown(boolean isPressed) {
         if (isPressed)
-            // Timescale set to be from 0-4 in code
+            // Timescale set to be from 0-5 in code
             if (timeScale > (MIN_TIMESCALE - 1)) {
                 timeScale -= 1;
                 setSpeed();
@@ -328,4 +595,152 @@ public class GameManager {
     private void setSpeed() {
         moveSpeed = SPEED[timeScale];
     }
+
+    /**
+     * Returns the timescale of the game, from 0 to 5
+     *
+     * @return Returns the timescale
+     */
+    public int getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Returns the distance objects move left each frame at the current timescale
+     *
+     * @return Returns the move speed
+     */
+    public double getMoveSpeed() {
+        return moveSpeed;
+    }
+
+    /**
+     * Returns the distance between pipe sets spawned at the current timescale
+     *
+     * @return Returns the pipe distance
+     */
+    public double getPipeDistance() {
+        return SPEED[timeScale] * PIPE_SPAWN_TIME[timeScale];
+    }
+
+    /**
+     * Returns the spawning parameters of the session
+     *
+     * @return Returns the difficulty
+     */
+    public Difficulty getDifficulty() {
+        return DIFFICULTY;
+    }
+
+    /**
+     * Returns the level the pipes and weapons are spawned for
+     *
+     * @return Returns the level
+     */
+    public int getLevel() {
+        return LEVEL;
+    }
+
+    /**
+     * Returns the random streams of the session
+     *
+     * @return Returns the session random
+     */
+    public SessionRandom getRandom() {
+        return RANDOM;
+    }
+
+    /**
+     * Returns the spawn schedule of the level (the chunk being played on an endless course)
+     *
+     * @return Returns the spawn schedule
+     */
+    public SpawnSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Returns the endless course spawned
+     *
+     * @return Returns the course, or null if the level has a schedule of its own
+     */
+    public EndlessCourse getCourse() {
+        return course;
+    }
+
+    /**
+     * Write the score, timescale, the pipe sets and weapons in play, the spawn
+     * schedule and the position on the endless course (the bird and the random
+     * streams are written by the world)
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putInt(score);
+        out.putInt(frameCounter);
+        out.putInt(timeScale);
+
+        out.putInt(GAME_PIPES.size());
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            GAME_PIPES.get(i).writeState(out);
+        out.putInt(WEAPONS.size());
+        for (int i = 0; i < WEAPONS.size(); ++i)
+            WEAPONS.get(i).writeWeapon(out);
+
+        // Spacing is measured from the last pipe set spawned, even once it has left play
+        int lastIndex = -1;
+        for (int i = 0; i < GAME_PIPES.size(); ++i)
+            if (GAME_PIPES.get(i) == lastPipe)
+                lastIndex = i;
+        out.putInt(lastIndex);
+        if (lastIndex == -1) {
+            out.put((byte) ((lastPipe == null) ? 0 : 1));
+            if (lastPipe != null)
+                lastPipe.writeState(out);
+        }
+        schedule.writeState(out);
+        if (course != null)
+            out.putLong(course.getNextChunk());
+    }
+
+    /**
+     * Restore a state written by writeState, replacing the pipe sets and weapons in play
+     *
+     * @param in The buffer to read from
+     */
+    public void readState(ByteBuffer in) {
+        score = in.getInt();
+        frameCounter = in.getInt();
+        timeScale = in.getInt();
+        setSpeed();
+
+        while (!GAME_PIPES.isEmpty())
+            PIPE_POOL.release(GAME_PIPES.poll());
+        while (!WEAPONS.isEmpty())
+            releaseWeapon(WEAPONS.poll());
+
+        int pipes = in.getInt();
+        for (int i = 0; i < pipes; ++i)
+            GAME_PIPES.add(PipeSet.readPipeSet(in, PIPE_POOL.obtain()));
+        int weapons = in.getInt();
+        for (int i = 0; i < weapons; ++i)
+            WEAPONS.add(Weapon.readWeapon(in, ROCK_POOL, BOMB_POOL));
+
+        int lastIndex = in.getInt();
+        if (lastIndex >= 0)
+            lastPipe = GAME_PIPES.get(lastIndex);
+        else if (in.get() != 0)
+            lastPipe = PipeSet.readPipeSet(in, null);
+        else
+            lastPipe = null;
+        schedule.readState(in);
+
+        // Generation restarts from the next chunk to play
+        if (course != null) {
+            long nextChunk = in.getLong();
+            if (nextChunk < 0)
+                throw new IllegalArgumentException("Invalid chunk " + nextChunk);
+            course = new EndlessCourse(Levels.get(LEVEL), DIFFICULTY, RANDOM.getCourseSeed(), nextChunk);
+        }
+    }
 }
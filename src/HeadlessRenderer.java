@@ -0,0 +1,15 @@
+import bagel.*;
+
+/**
+ * Renderer that draws nothing, so the game can be simulated without a window
+ */
+public class HeadlessRenderer implements Renderer {
+
+    @Override
+    public void draw(Sprite sprite, double x, double y, DrawOptions options, int layer) {
+    }
+
+    @Override
+    public void drawFromTopLeft(Sprite sprite, double x, double y, int layer) {
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets, in the manner of
+ * HdrHistogram: values are recorded exactly below 32 ns and to within about 3%
+ * above that, in a fixed array of counts, so recording never allocates.
+ */
+public class Histogram {
+    // Each power of two is split into this many buckets (as a power of two)
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + ((Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+
+    private final long[] COUNTS;
+    private long count;
+    private long max;
+
+    /**
+     * Create an empty histogram
+     */
+    public Histogram() {
+        COUNTS = new long[BUCKET_COUNT];
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * Add a duration
+     *
+     * @param nanos The duration in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        COUNTS[indexOf(value)] += 1;
+        count += 1;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the value below which the given percentage of durations fall
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return Returns the duration in nanoseconds (0 if empty)
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long target = Math.max((long) Math.ceil((percentile / 100.0) * count), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += COUNTS[i];
+            if (seen >= target)
+                return Math.min(highestOf(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the longest duration recorded
+     *
+     * @return Returns the maximum in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the number of durations recorded
+     *
+     * @return Returns the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Remove all recorded durations
+     */
+    public void clear() {
+        Arrays.fill(COUNTS, 0);
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * Write one CSV row (name,lowNs,highNs,count) for each non-empty bucket
+     *
+     * @param out The writer of the CSV file
+     * @param name The name in the first column
+     */
+    public void writeCsv(PrintWriter out, String name) {
+        for (int i = 0; i < BUCKET_COUNT; ++i)
+            if (COUNTS[i] > 0)
+                out.println(name + "," + lowestOf(i) + "," + highestOf(i) + "," + COUNTS[i]);
+    }
+
+    /**
+     * Returns the bucket holding a value
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + (shift * SUB_BUCKETS) + sub;
+    }
+
+    /**
+     * Returns the smallest value of a bucket
+     */
+    private static long lowestOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub)) << shift;
+    }
+
+    /**
+     * Returns the largest value of a bucket
+     */
+    private static long highestOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        return lowestOf(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Log of the input bitmask fed to the world on every tick of a session, together
+ * with the session seed. Since the world only depends on its seed and its inputs,
+ * replaying a log reproduces the recorded run tick for tick.
+ */
+public class InputLog {
+    // File header
+    private static final int MAGIC = 0x464c4150;
+    private static final int VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long SEED;
+    private byte[] inputs;
+    private int count;
+    private int position;
+
+    /**
+     * Create an empty log for a session
+     *
+     * @param seed The seed of the session being recorded
+     */
+    public InputLog(long seed) {
+        this.SEED = seed;
+        inputs = new byte[INITIAL_CAPACITY];
+        count = 0;
+        position = 0;
+    }
+
+    /**
+     * Add the input of the next tick
+     *
+     * @param input Input bitmask fed to the world
+     */
+    public void record(int input) {
+        if (count == inputs.length)
+            inputs = Arrays.copyOf(inputs, count * 2);
+        inputs[count++] = (byte) input;
+    }
+
+    /**
+     * Returns the input of the next tick to replay (no keys once the log is finished)
+     *
+     * @return Returns the input bitmask
+     */
+    public int next() {
+        if (position >= count)
+            return 0;
+        return inputs[position++];
+    }
+
+    /**
+     * Returns true if every recorded tick has been replayed
+     *
+     * @return Returns true if the replay is finished
+     */
+    public boolean isFinished() {
+        return position >= count;
+    }
+
+    /**
+     * Returns the seed of the recorded session
+     *
+     * @return Returns the seed
+     */
+    public long getSeed() {
+        return SEED;
+    }
+
+    /**
+     * Returns the number of recorded ticks
+     *
+     * @return Returns the tick count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Write the log to a file
+     *
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void save(String path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(SEED);
+            out.writeInt(count);
+            out.write(inputs, 0, count);
+        }
+    }
+
+    /**
+     * Read a log written by save, ready to replay from the first tick
+     *
+     * @param path The file to read
+     * @return Returns the loaded log
+     * @throws IOException If the file cannot be read or is not an input log
+     */
+    public static InputLog load(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(path + " is not an input log");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported input log version " + version);
+
+            InputLog log = new InputLog(in.readLong());
+            int count = in.readInt();
+            log.inputs = new byte[Math.max(count, 1)];
+            in.readFully(log.inputs, 0, count);
+            log.count = count;
+            return log;
+        }
+    }
+}
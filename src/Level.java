@@ -0,0 +1,168 @@
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The rules of one level: the score that finishes it, the lives of the bird,
+ * where its images are, and what is spawned in it. A level is written as a spec
+ * such as "score=10,lives=3,assets=res/level-0,gaps=fixed,steel=0,weapons=false",
+ * where every key is required once.
+ */
+public class Level {
+    private final int SCORE;
+    private final int LIVES;
+    private final String ASSETS;
+    private final boolean RANDOM_GAPS;
+    private final int STEEL_PERCENT;
+    private final boolean WEAPONS;
+
+    /**
+     * Create a level
+     *
+     * @param score The points needed to finish the level
+     * @param lives The lives of the bird
+     * @param assets The directory of the bird and background images
+     * @param randomGaps True for gap centres between the y bounds, false for the fixed gap centres
+     * @param steelPercent The percentage of steel pipe sets, from 0 to 100
+     * @param weapons True to spawn a weapon after every pipe set
+     */
+    public Level(int score, int lives, String assets, boolean randomGaps, int steelPercent, boolean weapons) {
+        if (score <= 0 || lives <= 0 || assets.isEmpty() || steelPercent < 0 || steelPercent > 100)
+            throw new IllegalArgumentException("Invalid level");
+
+        this.SCORE = score;
+        this.LIVES = lives;
+        this.ASSETS = assets;
+        this.RANDOM_GAPS = randomGaps;
+        this.STEEL_PERCENT = steelPercent;
+        this.WEAPONS = weapons;
+    }
+
+    /**
+     * Read a level from a spec
+     *
+     * @param spec Comma separated key=value pairs (score, lives, assets, gaps, steel, weapons)
+     * @return Returns the level
+     */
+    public static Level parse(String spec) {
+        Integer score = null;
+        Integer lives = null;
+        String assets = null;
+        Boolean randomGaps = null;
+        Integer steel = null;
+        Boolean weapons = null;
+
+        Set<String> keys = new HashSet<>();
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.trim().split("=", 2);
+            if (parts.length != 2)
+                throw new IllegalArgumentException("Expected key=value in " + spec);
+            if (!keys.add(parts[0]))
+                throw new IllegalArgumentException("Duplicate level key " + parts[0]);
+
+            switch (parts[0]) {
+                case "score":
+                    score = Integer.parseInt(parts[1]);
+                    break;
+                case "lives":
+                    lives = Integer.parseInt(parts[1]);
+                    break;
+                case "assets":
+                    assets = parts[1];
+                    break;
+                case "gaps":
+                    randomGaps = parseChoice(parts[1], "random", "fixed");
+                    break;
+                case "steel":
+                    steel = Integer.parseInt(parts[1]);
+                    break;
+                case "weapons":
+                    weapons = parseChoice(parts[1], "true", "false");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown level key " + parts[0]);
+            }
+        }
+
+        if (score == null || lives == null || assets == null || randomGaps == null || steel == null || weapons == null)
+            throw new IllegalArgumentException("Missing level key in " + spec);
+        return new Level(score, lives, assets, randomGaps, steel, weapons);
+    }
+
+    /**
+     * Returns true for the first of two allowed values, false for the second
+     */
+    private static boolean parseChoice(String value, String yes, String no) {
+        if (value.equals(yes))
+            return true;
+        if (value.equals(no))
+            return false;
+        throw new IllegalArgumentException("Expected " + yes + " or " + no + ", not " + value);
+    }
+
+    /**
+     * Returns the points needed to finish the level
+     *
+     * @return Returns the target score
+     */
+    public int getScore() {
+        return SCORE;
+    }
+
+    /**
+     * Returns the lives of the bird on this level
+     *
+     * @return Returns the lives
+     */
+    public int getLives() {
+        return LIVES;
+    }
+
+    /**
+     * Returns the path of an image of this level
+     *
+     * @param name The file name of the image
+     * @return Returns the image path
+     */
+    public String getAsset(String name) {
+        return ASSETS + "/" + name;
+    }
+
+    /**
+     * Returns true if gap centres are random between the y bounds rather than
+     * chosen from the fixed gap centres
+     *
+     * @return Returns true for random gaps
+     */
+    public boolean hasRandomGaps() {
+        return RANDOM_GAPS;
+    }
+
+    /**
+     * Returns the percentage of pipe sets made of steel
+     *
+     * @return Returns the steel percentage, from 0 to 100
+     */
+    public int getSteelPercent() {
+        return STEEL_PERCENT;
+    }
+
+    /**
+     * Returns true if a weapon is spawned after every pipe set
+     *
+     * @return Returns true if the level has weapons
+     */
+    public boolean hasWeapons() {
+        return WEAPONS;
+    }
+
+    /**
+     * Returns the spec of this level
+     *
+     * @return Returns the spec, as accepted by parse
+     */
+    @Override
+    public String toString() {
+        return "score=" + SCORE + ",lives=" + LIVES + ",assets=" + ASSETS + ",gaps=" + (RANDOM_GAPS ? "random" : "fixed")
+                + ",steel=" + STEEL_PERCENT + ",weapons=" + WEAPONS;
+    }
+}
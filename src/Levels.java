@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of the levels of the game, read once from res/levels.txt (one level
+ * spec per line, as accepted by Level.parse; blank lines and lines starting
+ * with # are ignored). Every level's assets directory must hold the images
+ * drawn for it.
+ */
+public final class Levels {
+    /**
+     * The file the levels are read from
+     */
+    public static final String PATH = "res/levels.txt";
+
+    // Images every level draws from its assets directory
+    private static final String[] REQUIRED_ASSETS = {Bird.WING_UP_IMAGE, Bird.WING_DOWN_IMAGE};
+
+    private Levels() {
+    }
+
+    // Loaded on first use, so the file is read once whichever thread gets there first
+    private static final class Holder {
+        private static final Level[] LEVELS = load(PATH);
+    }
+
+    /**
+     * Read and check the levels of a file
+     *
+     * @param path The file to read
+     * @return Returns the levels, in the order they are played
+     */
+    public static Level[] load(String path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read levels from " + path, e);
+        }
+
+        List<Level> levels = new ArrayList<>();
+        for (int i = 0; i < lines.size(); ++i) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            try {
+                Level level = Level.parse(line);
+                checkAssets(level);
+                levels.add(level);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(path + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (levels.isEmpty())
+            throw new IllegalArgumentException(path + ": no levels");
+        return levels.toArray(new Level[0]);
+    }
+
+    /**
+     * Check that the images a level draws exist
+     *
+     * @param level The level to check
+     */
+    private static void checkAssets(Level level) {
+        checkAssets(level, REQUIRED_ASSETS);
+        checkAssets(level, Background.TILES);
+    }
+
+    /**
+     * Check that the named images exist in a level's assets directory
+     */
+    private static void checkAssets(Level level, String[] names) {
+        for (String name : names) {
+            Path asset = Paths.get(level.getAsset(name));
+            if (!Files.isRegularFile(asset))
+                throw new IllegalArgumentException("Missing asset " + asset);
+        }
+    }
+
+    /**
+     * Returns a level of the game
+     *
+     * @param index The level number, from 0 to getCount() - 1
+     * @return Returns the level
+     */
+    public static Level get(int index) {
+        return Holder.LEVELS[index];
+    }
+
+    /**
+     * Returns the number of levels in the game
+     *
+     * @return Returns the level count
+     */
+    public static int getCount() {
+        return Holder.LEVELS.length;
+    }
+
+    /**
+     * Returns true if a level is the last one (finishing it wins the game)
+     *
+     * @param index The level number
+     * @return Returns true for the last level
+     */
+    public static boolean isLast(int index) {
+        return index == (Holder.LEVELS.length - 1);
+    }
+
+    /**
+     * Returns the points needed to finish every level before a given one
+     *
+     * @param index The level number
+     * @return Returns the total target score of the earlier levels
+     */
+    public static int getScoreBefore(int index) {
+        int total = 0;
+        for (int i = 0; i < index; ++i)
+            total += Holder.LEVELS[i].getScore();
+        return total;
+    }
+}
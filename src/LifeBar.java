@@ -1,11 +1,9 @@
-import bagel.*;
-
 /**
  * Class to store all the lives of the bird and update accordingly
  */
 public class LifeBar {
-    private final Image HEALTH;
-    private final Image NO_HEALTH;
+    private final Sprite HEALTH;
+    private final Sprite NO_HEALTH;
 
     private final int X_POS = 100;
     private final int Y_POS = 15;
@@ -15,17 +13,13 @@ public class LifeBar {
 
     /**
      * Creates a life bar for each level of the bird
-     * @param level The current level being played
+     * @param lives The lives of the bird on the current level
      */
-    public LifeBar(int level) {
-        HEALTH = new Image("res/level/fullLife.png");
-        NO_HEALTH = new Image ("res/level/noLife.png");
-
-        // Lives constant depending on level
-        if (level == 0)
-            LIVES = 3;
-        else
-            LIVES = 6;
+    public LifeBar(int lives) {
+        HEALTH = Assets.get("res/level/fullLife.png");
+        NO_HEALTH = Assets.get("res/level/noLife.png");
+
+        LIVES = lives;
         lives_left = LIVES;
     }
 
@@ -33,6 +27,8 @@ public class LifeBar {
      * Render life bar on screen with given number of lives
      */
     public void drawLifeBar() {
+        Sprite.setLayer(Renderer.HUD_LAYER);
+
         // Draw lives
         for(int i = 0; i < lives_left; ++i)
             HEALTH.drawFromTopLeft(X_POS + (HEART_DISTANCE * i), Y_POS);
@@ -56,4 +52,29 @@ public class LifeBar {
     public boolean hasLives() {
         return lives_left > 0;
     }
+
+    /**
+     * Returns the number of lives left
+     *
+     * @return Returns the lives left
+     */
+    public int getLivesLeft() {
+        return lives_left;
+    }
+
+    /**
+     * Give back every life (when the level starts again)
+     */
+    public void reset() {
+        lives_left = LIVES;
+    }
+
+    /**
+     * Set the number of lives left (when restoring a checkpoint)
+     *
+     * @param livesLeft The lives left
+     */
+    public void setLivesLeft(int livesLeft) {
+        lives_left = livesLeft;
+    }
 }
@@ -1,5 +1,8 @@
 import bagel.*;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Class that stores all messaging features
  */
@@ -38,6 +41,14 @@ public class Messages {
     private final int FONT_SIZE = 48;
     private final int WINDOW_WIDTH;
     private final int WINDOW_HEIGHT;
+    private final int SCORE_POSITION = 100;
+    private final int FINAL_SCORE_SHIFT = 75;
+    private final int SHOOT_SHIFT = 68;
+
+    // Cached layouts
+    private final Map<String, Double> CENTRED_X;
+    private final ScoreLayout CURRENT_SCORE;
+    private final ScoreLayout FINAL_SCORE_LAYOUT;
 
     /**
      * Initialize the messages class with the required font
@@ -48,6 +59,14 @@ public class Messages {
         // Window size does not change for the duration of the game
         WINDOW_WIDTH = Window.getWidth();
         WINDOW_HEIGHT = Window.getHeight();
+
+        // Fixed messages are measured once
+        CENTRED_X = new HashMap<>();
+        for (String message : new String[] {START_MESSAGE, GAME_OVER, WIN_MESSAGE, LEVEL_UP, SHOOT_MESSAGE})
+            getCentredX(message);
+
+        CURRENT_SCORE = new ScoreLayout(FONT, SCORE_MESSAGE, false, SCORE_POSITION, SCORE_POSITION);
+        FINAL_SCORE_LAYOUT = new ScoreLayout(FONT, FINAL_SCORE, true, WINDOW_WIDTH / 2.0, getCentredY(FINAL_SCORE_SHIFT));
     }
 
     /**
@@ -63,8 +82,8 @@ public class Messages {
      * Draw current score in the top-left corner of the window
      * @param score Current score of the bird
      */
-    public void getCurrentScore(Integer score) {
-        FONT.drawString(SCORE_MESSAGE + score.toString(), 100, 100);
+    public void getCurrentScore(int score) {
+        CURRENT_SCORE.draw(score);
     }
 
     /**
@@ -72,28 +91,30 @@ public class Messages {
      *
      * @param score Final score achieved by bird
      */
-    public void getFinalScore(Integer score) {
-        final int SHIFT_DOWN = 75;
-        final String message = FINAL_SCORE + score.toString();
-        FONT.drawString(message, getCentredX(message), getCentredY(SHIFT_DOWN));
+    public void getFinalScore(int score) {
+        FINAL_SCORE_LAYOUT.draw(score);
     }
 
     /**
-     * Render shoot instructions under the heading for level 1
+     * Render shoot instructions under the heading for levels with weapons
      */
     public void getShootMessage() {
-        final int SHIFT_DOWN = 68;
-        FONT.drawString(Messages.SHOOT_MESSAGE, getCentredX(Messages.SHOOT_MESSAGE), getCentredY(SHIFT_DOWN));
+        FONT.drawString(Messages.SHOOT_MESSAGE, getCentredX(Messages.SHOOT_MESSAGE), getCentredY(SHOOT_SHIFT));
     }
 
     /**
-     * Return the centred x-coordinate based on the string
+     * Return the centred x-coordinate based on the string, measuring each string once
      *
      * @param message The String for which we are looking for the centred x-cord
      * @return Returns the centred x position
      */
     private double getCentredX(String message){
-        return (WINDOW_WIDTH - FONT.getWidth(message)) / 2.0;
+        Double x = CENTRED_X.get(message);
+        if (x == null) {
+            x = (WINDOW_WIDTH - FONT.getWidth(message)) / 2.0;
+            CENTRED_X.put(message, x);
+        }
+        return x;
     }
 
     /**
@@ -0,0 +1,121 @@
+import java.util.function.Consumer;
+
+/**
+ * One background layer made of a row of tiles (a panorama split into PNG files of
+ * equal width) that repeats horizontally and scrolls at a fraction of the game
+ * speed. The tile sprites are resolved through Assets when the layer is created
+ * (on the prefetch thread when it is prefetched), so scrolling never opens a
+ * file; only the tiles inside the window are drawn, and a tile's image is only
+ * created once it first scrolls into view.
+ */
+public class ParallaxLayer {
+    private final Sprite[] TILES;
+    private final Sprite[] VISIBLE;
+    private final double TILE_WIDTH;
+    private final double FACTOR;
+    private final double Y;
+
+    private double offset;
+    private double previousOffset;
+    private int visibleCount;
+
+    /**
+     * Creates a layer from its tiles, left to right
+     *
+     * @param tiles Paths of the tile PNGs (all of the same width)
+     * @param factor Fraction of the game speed the layer scrolls at
+     * @param y The y-coordinate of the top of the layer
+     */
+    public ParallaxLayer(String[] tiles, double factor, double y) {
+        this.FACTOR = factor;
+        this.Y = y;
+        TILES = new Sprite[tiles.length];
+        VISIBLE = new Sprite[tiles.length];
+
+        // Only the headers are read here; the images are created when first drawn
+        for (int i = 0; i < tiles.length; ++i) {
+            TILES[i] = Assets.get(tiles[i]);
+            if (TILES[i].getWidth() != TILES[0].getWidth())
+                throw new IllegalArgumentException("Tile " + tiles[i] + " is not as wide as " + tiles[0]);
+        }
+        TILE_WIDTH = TILES[0].getWidth();
+
+        offset = 0;
+        previousOffset = 0;
+        stream(0, (int) Math.floor((World.WIDTH - 1) / TILE_WIDTH));
+    }
+
+    /**
+     * Scroll the layer by one tick
+     *
+     * @param speed The current game speed
+     */
+    public void update(double speed) {
+        previousOffset = offset;
+        offset += speed * FACTOR;
+
+        // Keep the offset within one repeat of the panorama
+        double length = TILE_WIDTH * TILES.length;
+        if (offset >= length) {
+            offset -= length;
+            previousOffset -= length;
+        }
+    }
+
+    /**
+     * Draw the visible tiles. The same tiles
+     * are drawn for any alpha (those visible at either of the last two ticks), so
+     * draws at different alphas line up one to one.
+     *
+     * @param alpha Interpolation factor between the last two ticks
+     */
+    public void draw(double alpha) {
+        double drawOffset = previousOffset + ((offset - previousOffset) * alpha);
+        int first = (int) Math.floor(Math.min(previousOffset, offset) / TILE_WIDTH);
+        int last = (int) Math.floor((Math.max(previousOffset, offset) + World.WIDTH - 1) / TILE_WIDTH);
+
+        stream(first, last);
+
+        for (int k = first; k <= last; ++k)
+            VISIBLE[Math.floorMod(k, TILES.length)].drawFromTopLeft((k * TILE_WIDTH) - drawOffset, Y);
+    }
+
+    /**
+     * Mark the tiles from first to last (inclusive) visible and all others hidden
+     */
+    private void stream(int first, int last) {
+        for (int tile = 0; tile < TILES.length; ++tile) {
+            boolean visible = false;
+            for (int k = first; k <= last && !visible; ++k)
+                visible = Math.floorMod(k, TILES.length) == tile;
+
+            if (visible && VISIBLE[tile] == null) {
+                VISIBLE[tile] = TILES[tile];
+                visibleCount += 1;
+            } else if (!visible && VISIBLE[tile] != null) {
+                VISIBLE[tile] = null;
+                visibleCount -= 1;
+            }
+        }
+    }
+
+    /**
+     * Pass every tile currently visible to an action
+     *
+     * @param action The action taking each tile sprite
+     */
+    public void forEachVisible(Consumer<Sprite> action) {
+        for (Sprite tile : VISIBLE)
+            if (tile != null)
+                action.accept(tile);
+    }
+
+    /**
+     * Returns the number of tiles currently visible
+     *
+     * @return Returns the visible tile count
+     */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+}
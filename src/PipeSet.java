@@ -1,7 +1,4 @@
-import bagel.*;
-import bagel.util.*;
-
-import java.lang.Math;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 /**
@@ -9,64 +6,98 @@ import java.util.ArrayList;
  */
 
 public class PipeSet {
+    /**
+     * Image of a plastic pipe
+     */
+    public static final String PLASTIC_PIPE_IMAGE = "res/level/plasticPipe.png";
+    /**
+     * Image of a steel pipe
+     */
+    public static final String STEEL_PIPE_IMAGE = "res/level-1/steelPipe.png";
+    /**
+     * Image of a flame shot by a steel pipe
+     */
+    public static final String FLAME_IMAGE = "res/level-1/flame.png";
+
     // Constants
     private final ArrayList<RightToLeft> PIPES;
     private final ArrayList<RightToLeft> FLAMES;
     private final int FLAME_SPAWN_INTERVAL = 20;
     private final int FLAME_SPAWN_LENGTH = 3;
     private final int SPACING = 168;
-    private final int LEVEL;
+    private int material;
+    private int centre;
 
     // Game variables
     private boolean hasPassed;
     private boolean hasDrawnFlames;
+    private boolean isHit;
     private int frameCounter;
     private int flameCounter;
 
     /**
-     * Constructor that initializes pipe type based on level at a given point
+     * Constructor that initializes pipe type based on its material at a given point
      *
-     * @param level The level of the pipe (plastic/steel)
+     * @param material The material of the pipe (SpawnSchedule.PLASTIC or STEEL)
      * @param centre The randomized centre of the pipe
      */
-    public PipeSet(int level, int centre) {
-        // Add pipes and flames to the list
+    public PipeSet(int material, int centre) {
         PIPES = new ArrayList<>();
         FLAMES = new ArrayList<>();
+        reset(material, centre);
+    }
 
-        addPipes(level, centre);
-        addFlames(centre);
+    /**
+     * Reinitialize the pipe set (new or recycled) with a type and centre
+     *
+     * @param material The material of the pipe (SpawnSchedule.PLASTIC or STEEL)
+     * @param centre The randomized centre of the pipe
+     */
+    public void reset(int material, int centre) {
+        this.material = material;
+        // Add pipes and flames to the list
+        addPipes(material, centre);
+        // Only steel pipes have flames
+        if (isSteel())
+            addFlames(centre);
 
         frameCounter = 0;
         flameCounter = 0;
         hasPassed = false;
         hasDrawnFlames = false;
-        this.LEVEL = level;
+        isHit = false;
+        this.centre = centre;
     }
 
     /**
      * Add pipes to the Array List (top and bottom)
      *
-     * @param level The level of the pipe (plastic/steel)
+     * @param material The material of the pipe (SpawnSchedule.PLASTIC or STEEL)
      * @param centre The centre of the pipe
      */
-    public void addPipes(int level, int centre) {
-        int height = Window.getHeight();
-        int width = Window.getWidth();
+    public void addPipes(int material, int centre) {
+        int height = World.HEIGHT;
+        int width = World.WIDTH;
 
         String directory;
-        Point topPos = new Point(width, - (height / 2.0) + centre);
-        Point botPos = new Point(width, (height / 2.0) + centre + SPACING);
-        DrawOptions option = new DrawOptions().setRotation(Math.PI);
+        double topY = - (height / 2.0) + centre;
+        double botY = (height / 2.0) + centre + SPACING;
 
         // Add pipes to the list
-        if (level == 0)
-            directory = "res/level/plasticPipe.png";
+        if (material == SpawnSchedule.PLASTIC)
+            directory = PLASTIC_PIPE_IMAGE;
         else
-            directory = "res/level-1/steelPipe.png";
+            directory = STEEL_PIPE_IMAGE;
 
-        PIPES.add(new RightToLeft(new Image(directory), topPos));
-        PIPES.add(new RightToLeft(new Image(directory), botPos, option));
+        Sprite pipe = Assets.get(directory);
+        if (PIPES.isEmpty()) {
+            PIPES.add(new RightToLeft(pipe, width, topY));
+            PIPES.add(new RightToLeft(pipe, width, botY, Assets.ROTATED));
+        } else {
+            // Recycled pipe set
+            PIPES.get(0).reset(pipe, width, topY, null);
+            PIPES.get(1).reset(pipe, width, botY, Assets.ROTATED);
+        }
     }
 
     /**
@@ -75,34 +106,29 @@ public class PipeSet {
      * @param centre The centre of the pipe to place the flames
      */
     public void addFlames(int centre) {
-        int width = Window.getWidth();
-        String directory = "res/level-1/flame.png";
-        Image flame = new Image(directory);
-        DrawOptions option = new DrawOptions().setRotation(Math.PI);
+        int width = World.WIDTH;
+        Sprite flame = Assets.get(FLAME_IMAGE);
 
-        Point topPos = new Point(width, centre + (flame.getHeight() / 2.0) - 1);
-        Point botPos = new Point(width, centre + SPACING - (flame.getHeight() / 2.0) + 1);
+        double topY = centre + (flame.getHeight() / 2.0) - 1;
+        double botY = centre + SPACING - (flame.getHeight() / 2.0) + 1;
 
-        FLAMES.add(new RightToLeft(new Image(directory), topPos));
-        FLAMES.add(new RightToLeft(new Image(directory), botPos, option));
+        if (FLAMES.isEmpty()) {
+            FLAMES.add(new RightToLeft(flame, width, topY));
+            FLAMES.add(new RightToLeft(flame, width, botY, Assets.ROTATED));
+        } else {
+            // Recycled pipe set
+            FLAMES.get(0).reset(flame, width, topY, null);
+            FLAMES.get(1).reset(flame, width, botY, Assets.ROTATED);
+        }
     }
 
     /**
-     * Draw all objects created, with flames on specific routine
+     * Update the flame routine of the pipe set (flames only exist on steel pipes)
      */
-    public void drawObjects() {
+    public void update() {
         frameCounter += 1;
 
-        // Draw pipes
-        for (RightToLeft pipe: PIPES)
-            pipe.drawObject();
-
-        // Draw Flames
-        if (LEVEL == 1) {
-            if (hasDrawnFlames)
-                for (RightToLeft flame: FLAMES)
-                    flame.drawObject();
-
+        if (isSteel()) {
             // Update condition based on frame counter
             if (frameCounter % FLAME_SPAWN_INTERVAL == 0)
                 if(!hasDrawnFlames) {
@@ -115,47 +141,80 @@ public class PipeSet {
     }
 
     /**
-     * Shift all RightToLeft objects to the left
+     * Draw all objects created, with flames on specific routine
+     *
+     * @param alpha Interpolation factor between the last two ticks
      */
-    public void leftShift() {
-        for (RightToLeft pipe: PIPES)
-            pipe.leftShift();
-        for (RightToLeft flame: FLAMES)
-            flame.leftShift();
+    public void drawObjects(double alpha) {
+        // Draw pipes
+        Sprite.setLayer(Renderer.PIPE_LAYER);
+        for (int i = 0; i < PIPES.size(); ++i)
+            PIPES.get(i).drawObject(alpha);
+
+        // Draw Flames
+        Sprite.setLayer(Renderer.FLAME_LAYER);
+        if (hasDrawnFlames)
+            for (int i = 0; i < FLAMES.size(); ++i)
+                FLAMES.get(i).drawObject(alpha);
+    }
+
+    /**
+     * Remember the positions of the pipes and flames for interpolation
+     */
+    public void savePosition() {
+        for (int i = 0; i < PIPES.size(); ++i)
+            PIPES.get(i).savePosition();
+        for (int i = 0; i < FLAMES.size(); ++i)
+            FLAMES.get(i).savePosition();
     }
 
     /**
-     * Check if bird (and weapon) has collided with the pipe set
+     * Shift all RightToLeft objects to the left
      *
-     * @param bird The bird in play
-     * @return Returns true if collision occurs
+     * @param speed The distance to move left
      */
-    public boolean birdWeaponCollision(Bird bird) {
-        if (bird.getHasPickedWeapon())
-            if (checkCollision(bird.getPickedWeapon().getBox(), true))
-                return true;
-        return checkCollision(bird.getBox(), true);
+    public void leftShift(double speed) {
+        for (int i = 0; i < PIPES.size(); ++i)
+            PIPES.get(i).leftShift(speed);
+        for (int i = 0; i < FLAMES.size(); ++i)
+            FLAMES.get(i).leftShift(speed);
     }
 
     /**
-     * Check if collision between given object and the pipes and flames
+     * Register the pipes, and the flames while they are lit, with the broadphase
      *
-     * @param box Bounding box of object to check collision with
-     * @param withFlames If checking collision with flames as well
-     * @return Returns true if collision occurs
+     * @param broadphase The broadphase for this frame
      */
-    public boolean checkCollision(Rectangle box, boolean withFlames) {
-        if (withFlames)
-            if (hasDrawnFlames)
-                for (RightToLeft flame: FLAMES)
-                    if (box.intersects(flame.getBox()))
-                        return true;
-        for (RightToLeft pipe: PIPES)
-            if(box.intersects(pipe.getBox()))
-                return true;
+    public void addBoxes(Broadphase broadphase) {
+        for (int i = 0; i < PIPES.size(); ++i)
+            broadphase.add(PIPES.get(i).getBox(), GameManager.PIPE_LAYER, this);
+        if (hasDrawnFlames)
+            for (int i = 0; i < FLAMES.size(); ++i)
+                broadphase.add(FLAMES.get(i).getBox(), GameManager.FLAME_LAYER, this);
+    }
 
-        // No intersection
-        return false;
+    /**
+     * Start a new collision step from the current positions of the pipes and
+     * flames (lit or not, so a flame lighting up is not swept from where it was),
+     * with the pipe set not yet hit by the bird
+     */
+    public void clearMotion() {
+        for (int i = 0; i < PIPES.size(); ++i)
+            PIPES.get(i).clearMotion();
+        for (int i = 0; i < FLAMES.size(); ++i)
+            FLAMES.get(i).clearMotion();
+        isHit = false;
+    }
+
+    /**
+     * Mark the pipe set as hit by the bird in the current collision step
+     *
+     * @return Returns true if it was not already hit this step
+     */
+    public boolean markHit() {
+        boolean first = !isHit;
+        isHit = true;
+        return first;
     }
 
     /**
@@ -176,7 +235,7 @@ public class PipeSet {
      * @return Returns true if bird has passed
      */
     public boolean checkBirdPass(Bird bird) {
-        if (bird.getPosition().x > PIPES.get(0).getBox().right())
+        if (bird.getX() > PIPES.get(0).getBox().right())
             hasPassed = true;
         return hasPassed;
     }
@@ -205,15 +264,80 @@ public class PipeSet {
      * @return Returns the x-pos
      */
     public double getX() {
-        return PIPES.get(0).getPosition().x;
+        return PIPES.get(0).getX();
+    }
+
+    /**
+     * Returns the y-coordinate of the middle of the gap between the pipes
+     *
+     * @return Returns the gap centre
+     */
+    public double getGapCentre() {
+        return centre + (SPACING / 2.0);
     }
 
     /**
-     * Returns the current level of the pipe (steel/plastic)
+     * Returns the material of the pipe (steel/plastic)
      *
-     * @return Returns level of the pipe set
+     * @return Returns SpawnSchedule.PLASTIC or STEEL
      */
     public int getLEVEL() {
-        return LEVEL;
+        return material;
+    }
+
+    /**
+     * Returns true if the pipe set is made of steel (and has flames)
+     *
+     * @return Returns true for steel pipes
+     */
+    public boolean isSteel() {
+        return material == SpawnSchedule.STEEL;
+    }
+
+    /**
+     * Write the type, gap and state of the pipe set, to be read back with readPipeSet
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.put((byte) material);
+        out.putInt(centre);
+        out.put((byte) (hasPassed ? 1 : 0));
+        out.put((byte) (hasDrawnFlames ? 1 : 0));
+        out.putInt(frameCounter);
+        out.putInt(flameCounter);
+        for (int i = 0; i < PIPES.size(); ++i)
+            PIPES.get(i).writeState(out);
+        // Only steel pipes use their flames
+        if (isSteel())
+            for (int i = 0; i < FLAMES.size(); ++i)
+                FLAMES.get(i).writeState(out);
+    }
+
+    /**
+     * Read a pipe set written by writeState into a new or recycled pipe set
+     *
+     * @param in The buffer to read from
+     * @param pipeSet The pipe set to restore into, or null to create one
+     * @return Returns the restored pipe set
+     */
+    public static PipeSet readPipeSet(ByteBuffer in, PipeSet pipeSet) {
+        int material = in.get();
+        int centre = in.getInt();
+        if (pipeSet == null)
+            pipeSet = new PipeSet(material, centre);
+        else
+            pipeSet.reset(material, centre);
+
+        pipeSet.hasPassed = in.get() != 0;
+        pipeSet.hasDrawnFlames = in.get() != 0;
+        pipeSet.frameCounter = in.getInt();
+        pipeSet.flameCounter = in.getInt();
+        for (RightToLeft pipe: pipeSet.PIPES)
+            pipe.readState(in);
+        if (pipeSet.isSteel())
+            for (RightToLeft flame: pipeSet.FLAMES)
+                flame.readState(in);
+        return pipeSet;
     }
 }
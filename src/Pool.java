@@ -0,0 +1,116 @@
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of objects that can be recycled instead of left to the garbage
+ * collector. Objects handed out must be reset by the caller before use.
+ *
+ * @param <T> The type of pooled object
+ */
+public class Pool<T> {
+    private final Object[] FREE;
+    private int freeCount;
+
+    // Statistics
+    private long obtained;
+    private long reused;
+    private int inUse;
+    private int highWater;
+
+    /**
+     * Create an empty pool that keeps at most capacity free objects
+     *
+     * @param capacity The maximum number of free objects held
+     */
+    public Pool(int capacity) {
+        FREE = new Object[capacity];
+        freeCount = 0;
+    }
+
+    /**
+     * Take a free object from the pool
+     *
+     * @return Returns a recycled object, or null if the caller must create one
+     */
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        obtained += 1;
+        inUse += 1;
+        highWater = Math.max(highWater, inUse);
+
+        if (freeCount == 0)
+            return null;
+
+        reused += 1;
+        T object = (T) FREE[--freeCount];
+        FREE[freeCount] = null;
+        return object;
+    }
+
+    /**
+     * Return an object to the pool, dropping it if the pool is full
+     *
+     * @param object The object no longer in use
+     */
+    public void release(T object) {
+        inUse -= 1;
+        if (freeCount < FREE.length)
+            FREE[freeCount++] = object;
+    }
+
+    /**
+     * Create free objects until the pool is full, so objects are created while
+     * loading rather than during play (they count as reused when obtained)
+     *
+     * @param factory Creates one object
+     */
+    public void fill(Supplier<? extends T> factory) {
+        while (freeCount < FREE.length)
+            FREE[freeCount++] = factory.get();
+    }
+
+    /**
+     * Returns the maximum number of free objects the pool holds
+     *
+     * @return Returns the capacity
+     */
+    public int getCapacity() {
+        return FREE.length;
+    }
+
+    /**
+     * Returns the largest number of objects in use at the same time
+     *
+     * @return Returns the high-water mark
+     */
+    public int getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * Returns the fraction of requests served by a recycled object
+     *
+     * @return Returns the reuse ratio (0 if nothing has been obtained)
+     */
+    public double getReuseRatio() {
+        return (obtained == 0) ? 0 : (double) reused / obtained;
+    }
+
+    /**
+     * Returns the number of objects that had to be created by the caller
+     *
+     * @return Returns the number of misses
+     */
+    public long getCreated() {
+        return obtained - reused;
+    }
+
+    /**
+     * Returns a one line summary of the pool statistics
+     *
+     * @return Returns the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("created=%d reuse=%.3f highWater=%d", getCreated(), getReuseRatio(), highWater);
+    }
+}
@@ -0,0 +1,139 @@
+import java.nio.ByteBuffer;
+
+/**
+ * SplitMix64 random stream giving the same numbers as java.util.SplittableRandom
+ * (so sessions play out as before), with a state that can be saved and restored.
+ */
+public class RandomStream {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * Create a stream from a seed, like new SplittableRandom(seed)
+     *
+     * @param seed The seed of the stream
+     */
+    public RandomStream(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private RandomStream(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Returns a new stream split from this one, like SplittableRandom.split
+     *
+     * @return Returns the new stream
+     */
+    public RandomStream split() {
+        return new RandomStream(nextLong(), mixGamma(nextSeed()));
+    }
+
+    /**
+     * Restart the stream from a seed, as if created with new RandomStream(seed)
+     *
+     * @param seed The seed of the stream
+     */
+    public void reseed(long seed) {
+        this.seed = seed;
+        gamma = GOLDEN_GAMMA;
+    }
+
+    /**
+     * Restart another stream as split from this one, like split without creating a stream
+     *
+     * @param stream The stream to restart
+     */
+    public void splitInto(RandomStream stream) {
+        stream.seed = nextLong();
+        stream.gamma = mixGamma(nextSeed());
+    }
+
+    /**
+     * Returns a random long
+     *
+     * @return Returns the next long
+     */
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    /**
+     * Returns a random int from 0 (inclusive) to bound (exclusive)
+     *
+     * @param bound The upper bound (positive)
+     * @return Returns the next int
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0)
+            // Power of two, mask the low bits
+            r &= m;
+        else
+            // Reject values from the incomplete last range
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1)
+                ;
+        return r;
+    }
+
+    /**
+     * Returns a random double from 0 (inclusive) to 1 (exclusive), like SplittableRandom.nextDouble
+     *
+     * @return Returns the next double
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Write the state of the stream
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putLong(seed);
+        out.putLong(gamma);
+    }
+
+    /**
+     * Restore a state written by writeState
+     *
+     * @param in The buffer to read from
+     */
+    public void readState(ByteBuffer in) {
+        seed = in.getLong();
+        gamma = in.getLong();
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        // Avoid gammas with too few bit transitions
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,53 @@
+import bagel.*;
+
+/**
+ * Thin adapter between the game objects and whatever draws them on screen.
+ * Sprites in a higher layer are drawn over sprites in a lower layer.
+ */
+public interface Renderer {
+    /**
+     * Layer of the background
+     */
+    int BACKGROUND_LAYER = 0;
+    /**
+     * Layer of the pipes
+     */
+    int PIPE_LAYER = 1;
+    /**
+     * Layer of the flames (over their pipes)
+     */
+    int FLAME_LAYER = 2;
+    /**
+     * Layer of the weapons
+     */
+    int WEAPON_LAYER = 3;
+    /**
+     * Layer of the bird
+     */
+    int BIRD_LAYER = 4;
+    /**
+     * Layer of the life bar
+     */
+    int HUD_LAYER = 5;
+
+    /**
+     * Draw a sprite centred at the given position
+     *
+     * @param sprite The sprite to draw
+     * @param x The x-coordinate of the centre
+     * @param y The y-coordinate of the centre
+     * @param options The draw options applied, or null if none
+     * @param layer The layer the sprite is drawn in
+     */
+    void draw(Sprite sprite, double x, double y, DrawOptions options, int layer);
+
+    /**
+     * Draw a sprite with its top-left corner at the given position
+     *
+     * @param sprite The sprite to draw
+     * @param x The x-coordinate of the top-left corner
+     * @param y The y-coordinate of the top-left corner
+     * @param layer The layer the sprite is drawn in
+     */
+    void drawFromTopLeft(Sprite sprite, double x, double y, int layer);
+}
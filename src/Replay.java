@@ -0,0 +1,60 @@
+import java.io.IOException;
+
+/**
+ * Command line runner that replays a recorded replay file (or an input log)
+ * headless (no window), so a reported run can be reproduced tick for tick under
+ * a profiler
+ */
+public class Replay {
+    /**
+     * The entry point for the replay.
+     *
+     * @param args Path of the replay file or input log, and optionally the number of
+     *             times to replay it and the tick of a replay file to start from
+     * @throws IOException If the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: Replay <replay file or input log> [repeats] [start tick]");
+            return;
+        }
+        int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        long startTick = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+        boolean stream = ReplayReader.isReplayFile(args[0]);
+
+        for (int run = 0; run < repeats; ++run) {
+            long start = System.nanoTime();
+            World world;
+            long seed;
+            long ticks;
+
+            if (stream) {
+                ReplayReader replay = ReplayReader.open(args[0]);
+                seed = replay.getSeed();
+                world = (startTick > 0) ? replay.seek(startTick)
+                        : new World(seed, Difficulty.DEFAULT, replay.isEndless());
+                while (!replay.isFinished()) {
+                    int input = replay.next();
+                    World restored = replay.takeKeyframe();
+                    if (restored != null)
+                        world = restored;
+                    world.update(input);
+                }
+                ticks = replay.getTick();
+                replay.close();
+            } else {
+                InputLog log = InputLog.load(args[0]);
+                seed = log.getSeed();
+                world = new World(seed);
+                while (!log.isFinished())
+                    world.update(log.next());
+                ticks = log.size();
+            }
+            double elapsedMs = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("seed=%d ticks=%d level=%d score=%d gameOver=%b gameWon=%b elapsedMs=%.1f%n",
+                    seed, ticks, world.getLevel(), world.getScore(),
+                    world.isGameOver(), world.isGameWon(), elapsedMs);
+        }
+    }
+}
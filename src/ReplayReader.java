@@ -0,0 +1,399 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a replay file written by ReplayWriter a block at a time, giving the
+ * input of one tick after another and the keyframes met on the way. Reading can
+ * jump to any tick, starting from the last keyframe before it.
+ */
+public class ReplayReader {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel CHANNEL;
+    private final ByteBuffer BUFFER;
+    private final Inflater INFLATER;
+    private final long SEED;
+    private final int LEVEL;
+    private final boolean ENDLESS;
+
+    // Keyframe index (built on the first seek)
+    private long[] keyframeTicks;
+    private long[] keyframeOffsets;
+    private int keyframeCount;
+
+    // Reading state
+    private byte[] deflated;
+    private byte[] raw;
+    private ByteBuffer block;
+    private long tick;
+    private int input;
+    private long runRemaining;
+    private byte[] keyframe;
+    private int keyframeLength;
+    private boolean hasKeyframe;
+
+    private ReplayReader(FileChannel channel) throws IOException {
+        CHANNEL = channel;
+        BUFFER = ByteBuffer.allocate(BUFFER_SIZE);
+        BUFFER.flip();
+        INFLATER = new Inflater();
+
+        if (!fill(ReplayWriter.HEADER_SIZE) || BUFFER.getInt() != ReplayWriter.MAGIC)
+            throw new IOException("Not a replay file");
+        int version = BUFFER.getInt();
+        if (version != ReplayWriter.VERSION)
+            throw new IOException("Unsupported replay version " + version);
+        SEED = BUFFER.getLong();
+        LEVEL = BUFFER.get();
+        ENDLESS = BUFFER.get() != 0;
+
+        deflated = new byte[0];
+        raw = new byte[0];
+        block = ByteBuffer.wrap(raw);
+        keyframe = new byte[0];
+    }
+
+    /**
+     * Open a replay file, ready to read from the first tick
+     *
+     * @param path The file to read
+     * @return Returns the reader
+     * @throws IOException If the file cannot be read or is not a replay file
+     */
+    public static ReplayReader open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            return new ReplayReader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if a file starts like a replay file
+     *
+     * @param path The file to check
+     * @return Returns true if the file is a replay file
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean isReplayFile(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && (channel.read(magic) > 0))
+                ;
+            return !magic.hasRemaining() && (magic.getInt(0) == ReplayWriter.MAGIC);
+        }
+    }
+
+    /**
+     * Returns the input of the next tick (no keys once the replay is finished).
+     * A keyframe met before the tick can then be taken with takeKeyframe.
+     *
+     * @return Returns the input bitmask
+     * @throws IOException If the file cannot be read
+     */
+    public int next() throws IOException {
+        while (runRemaining == 0)
+            if (!readRecord())
+                return 0;
+        runRemaining -= 1;
+        tick += 1;
+        return input;
+    }
+
+    /**
+     * Returns the world of the keyframe met by the last call to next, once
+     *
+     * @return Returns the world before the tick just read, or null if there was no keyframe
+     * @throws IOException If the keyframe is corrupt
+     */
+    public World takeKeyframe() throws IOException {
+        if (!hasKeyframe)
+            return null;
+        hasKeyframe = false;
+        return Checkpoint.decode(ByteBuffer.wrap(keyframe, 0, keyframeLength));
+    }
+
+    /**
+     * Returns true if every recorded tick has been read
+     *
+     * @return Returns true if the replay is finished
+     * @throws IOException If the file cannot be read
+     */
+    public boolean isFinished() throws IOException {
+        return (runRemaining == 0) && !block.hasRemaining() && !fill(1);
+    }
+
+    /**
+     * Move to a tick and return the world at it, restored from the last keyframe
+     * before it (or the start of the session) and played forward. Reading then
+     * continues from that tick.
+     *
+     * @param target The number of ticks played
+     * @return Returns the world before the tick after target
+     * @throws IOException If the file cannot be read or ends before the tick
+     */
+    public World seek(long target) throws IOException {
+        if (keyframeTicks == null)
+            buildIndex();
+
+        int index = -1;
+        for (int i = 0; i < keyframeCount; ++i)
+            if (keyframeTicks[i] <= target)
+                index = i;
+
+        World world;
+        if (index == -1) {
+            moveTo(ReplayWriter.HEADER_SIZE, 0);
+            world = new World(SEED, Difficulty.DEFAULT, ENDLESS);
+        } else {
+            moveTo(keyframeOffsets[index], keyframeTicks[index]);
+            readRecord();
+            world = takeKeyframe();
+        }
+
+        while (tick < target) {
+            if (isFinished())
+                throw new IOException("Replay ends at tick " + tick);
+            int tickInput = next();
+            World restored = takeKeyframe();
+            if (restored != null)
+                world = restored;
+            world.update(tickInput);
+        }
+        return world;
+    }
+
+    /**
+     * Returns the number of ticks read so far
+     *
+     * @return Returns the current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the seed of the recorded session
+     *
+     * @return Returns the seed
+     */
+    public long getSeed() {
+        return SEED;
+    }
+
+    /**
+     * Returns the level the recorded session starts on
+     *
+     * @return Returns the level
+     */
+    public int getLevel() {
+        return LEVEL;
+    }
+
+    /**
+     * Returns true if the recorded session is endless
+     *
+     * @return Returns true for an endless session
+     */
+    public boolean isEndless() {
+        return ENDLESS;
+    }
+
+    /**
+     * Close the file
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    public void close() throws IOException {
+        INFLATER.end();
+        CHANNEL.close();
+    }
+
+    /**
+     * Read the next record (a run becomes the current run, a keyframe is kept for takeKeyframe)
+     *
+     * @return Returns false at the end of the file
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    private boolean readRecord() throws IOException {
+        if (!block.hasRemaining() && !readBlock())
+            return false;
+
+        try {
+            int tag = block.get();
+            if (tag == ReplayWriter.RUN) {
+                input ^= block.get() & 0xff;
+                runRemaining = getVarLong(block);
+                return true;
+            }
+            if (tag != ReplayWriter.KEYFRAME)
+                throw new IOException("Corrupt replay at tick " + tick);
+
+            getVarLong(block);
+            keyframeLength = (int) getVarLong(block);
+            if (keyframe.length < keyframeLength)
+                keyframe = new byte[keyframeLength];
+            block.get(keyframe, 0, keyframeLength);
+            hasKeyframe = true;
+            return true;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt replay at tick " + tick, e);
+        }
+    }
+
+    /**
+     * Read and inflate the next block
+     *
+     * @return Returns false at the end of the file
+     * @throws IOException If the file cannot be read or is corrupt
+     */
+    private boolean readBlock() throws IOException {
+        if (!fill(1))
+            return false;
+        BUFFER.get();
+        getVarLong();
+        int rawLength = (int) getVarLong();
+        int deflatedLength = (int) getVarLong();
+
+        if (deflated.length < deflatedLength)
+            deflated = new byte[deflatedLength];
+        readFully(deflated, deflatedLength);
+        if (raw.length < rawLength)
+            raw = new byte[rawLength];
+
+        INFLATER.reset();
+        INFLATER.setInput(deflated, 0, deflatedLength);
+        try {
+            if (INFLATER.inflate(raw, 0, rawLength) != rawLength)
+                throw new IOException("Corrupt replay block at tick " + tick);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt replay block at tick " + tick, e);
+        }
+        block = ByteBuffer.wrap(raw, 0, rawLength);
+
+        // Runs of a block do not depend on the inputs before it
+        input = 0;
+        return true;
+    }
+
+    /**
+     * Scan the block headers for the ticks and offsets of the keyframes
+     *
+     * @throws IOException If the file cannot be read
+     */
+    private void buildIndex() throws IOException {
+        keyframeTicks = new long[16];
+        keyframeOffsets = new long[16];
+        keyframeCount = 0;
+
+        moveTo(ReplayWriter.HEADER_SIZE, 0);
+        while (fill(1)) {
+            long offset = CHANNEL.position() - BUFFER.remaining();
+            int tag = BUFFER.get();
+            long startTick = getVarLong();
+            getVarLong();
+            long deflatedLength = getVarLong();
+
+            if (tag == ReplayWriter.KEYFRAME_BLOCK) {
+                if (keyframeCount == keyframeTicks.length) {
+                    keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+                    keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+                }
+                keyframeTicks[keyframeCount] = startTick;
+                keyframeOffsets[keyframeCount] = offset;
+                keyframeCount += 1;
+            }
+            skip(deflatedLength);
+        }
+    }
+
+    /**
+     * Continue reading from the block at a given offset and tick
+     */
+    private void moveTo(long offset, long atTick) throws IOException {
+        CHANNEL.position(offset);
+        BUFFER.clear();
+        BUFFER.flip();
+        block = ByteBuffer.wrap(raw, 0, 0);
+        tick = atTick;
+        input = 0;
+        runRemaining = 0;
+        hasKeyframe = false;
+    }
+
+    /**
+     * Make at least count bytes of the file available in the buffer
+     *
+     * @return Returns false if the file ends first
+     */
+    private boolean fill(int count) throws IOException {
+        if (BUFFER.remaining() >= count)
+            return true;
+        BUFFER.compact();
+        while (BUFFER.position() < count)
+            if (CHANNEL.read(BUFFER) <= 0)
+                break;
+        BUFFER.flip();
+        return BUFFER.remaining() >= count;
+    }
+
+    /**
+     * Read an unsigned variable length number from the file
+     */
+    private long getVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!fill(1))
+                throw new IOException("Truncated replay");
+            int b = BUFFER.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt replay");
+    }
+
+    /**
+     * Read an unsigned variable length number from a block
+     */
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt replay");
+    }
+
+    /**
+     * Read bytes of the file that may be more than the buffer holds
+     */
+    private void readFully(byte[] bytes, int length) throws IOException {
+        int copied = Math.min(BUFFER.remaining(), length);
+        BUFFER.get(bytes, 0, copied);
+        ByteBuffer rest = ByteBuffer.wrap(bytes, copied, length - copied);
+        while (rest.hasRemaining())
+            if (CHANNEL.read(rest) <= 0)
+                throw new IOException("Truncated replay");
+    }
+
+    /**
+     * Skip bytes of the file that may be more than the buffer holds
+     */
+    private void skip(long count) throws IOException {
+        int skipped = (int) Math.min(BUFFER.remaining(), count);
+        BUFFER.position(BUFFER.position() + skipped);
+        if (count > skipped)
+            CHANNEL.position(CHANNEL.position() + (count - skipped));
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Streams a replay file to disk while a session is played. The file starts with
+ * a header (magic, version, seed, starting level and mode) followed by deflated
+ * blocks of records: runs of identical inputs (each input stored as its XOR with
+ * the input before, and the run length) and keyframes (a checkpoint of the world
+ * and the ticks since the previous keyframe). A keyframe always starts a block,
+ * so reading can start from it. Blocks are compressed and written by a
+ * background thread through a FileChannel, so the recording thread never waits
+ * on the disk.
+ */
+public class ReplayWriter {
+    /**
+     * File header: magic
+     */
+    public static final int MAGIC = 0x464c5253;
+    /**
+     * File header: version
+     */
+    public static final int VERSION = 4;
+    /**
+     * File header: size in bytes
+     */
+    public static final int HEADER_SIZE = 18;
+    /**
+     * Block tag: a block of runs
+     */
+    public static final int BLOCK = 1;
+    /**
+     * Block tag: a block starting with a keyframe
+     */
+    public static final int KEYFRAME_BLOCK = 2;
+    /**
+     * Record tag: a run of ticks with the same input
+     */
+    public static final int RUN = 1;
+    /**
+     * Record tag: a keyframe of the world before the next tick
+     */
+    public static final int KEYFRAME = 2;
+
+    // Raw size at which a block is handed to the background thread
+    private static final int BLOCK_SIZE = 16384;
+
+    private final FileChannel CHANNEL;
+    private final ExecutorService WRITER;
+    private final Deflater DEFLATER;
+    private final int KEYFRAME_INTERVAL;
+    private byte[] deflated;
+    private volatile long bytes;
+    private volatile IOException error;
+
+    // Recording state
+    private ByteBuffer block;
+    private long blockTick;
+    private boolean blockHasKeyframe;
+    private long tick;
+    private long lastKeyframe;
+    private int previousInput;
+    private int runInput;
+    private int runLength;
+
+    /**
+     * Create a replay file and write its header
+     *
+     * @param path The file to write
+     * @param seed The seed of the recorded session
+     * @param level The level the session starts on
+     * @param endless True if the session is endless
+     * @param keyframeInterval Ticks between keyframes (0 for keyframes only when added explicitly)
+     * @throws IOException If the file cannot be created
+     */
+    public ReplayWriter(String path, long seed, int level, boolean endless, int keyframeInterval) throws IOException {
+        CHANNEL = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        WRITER = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replay writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        DEFLATER = new Deflater(Deflater.BEST_COMPRESSION);
+        KEYFRAME_INTERVAL = keyframeInterval;
+        deflated = new byte[BLOCK_SIZE];
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(seed);
+        header.put((byte) level);
+        header.put((byte) (endless ? 1 : 0));
+        header.flip();
+        writeFully(header);
+        bytes = HEADER_SIZE;
+
+        block = ByteBuffer.allocate(BLOCK_SIZE);
+        tick = 0;
+        lastKeyframe = 0;
+    }
+
+    /**
+     * Add the input of the next tick, after a keyframe of the world if one is due
+     *
+     * @param world The world the input is about to be fed to
+     * @param input Input bitmask of the tick
+     */
+    public void record(World world, int input) {
+        if ((KEYFRAME_INTERVAL > 0) && (tick > 0) && ((tick % KEYFRAME_INTERVAL) == 0) && (lastKeyframe != tick))
+            keyframe(world);
+
+        if ((runLength > 0) && (input == runInput))
+            runLength += 1;
+        else {
+            flushRun();
+            runInput = input;
+            runLength = 1;
+        }
+        tick += 1;
+    }
+
+    /**
+     * Add a keyframe of the world as it is before the next tick (e.g. after it has
+     * been replaced by a checkpoint), starting a new block
+     *
+     * @param world The world to keyframe
+     */
+    public void keyframe(World world) {
+        flushRun();
+        flush();
+
+        ByteBuffer checkpoint = Checkpoint.encode(world);
+        ensureRemaining(1 + 10 + 5 + checkpoint.limit());
+        block.put((byte) KEYFRAME);
+        putVarLong(tick - lastKeyframe);
+        putVarLong(checkpoint.limit());
+        block.put(checkpoint);
+        blockHasKeyframe = true;
+        lastKeyframe = tick;
+    }
+
+    /**
+     * Write the last records and wait for the background writes to finish
+     *
+     * @throws IOException If the file could not be written
+     */
+    public void close() throws IOException {
+        flushRun();
+        flush();
+        WRITER.shutdown();
+        try {
+            WRITER.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        DEFLATER.end();
+        CHANNEL.close();
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Returns the number of ticks recorded
+     *
+     * @return Returns the tick count
+     */
+    public long getTicks() {
+        return tick;
+    }
+
+    /**
+     * Returns the number of bytes written to the file so far
+     *
+     * @return Returns the file size written
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Add the run in progress as a record
+     */
+    private void flushRun() {
+        if (runLength == 0)
+            return;
+        ensureRemaining(1 + 1 + 5);
+        block.put((byte) RUN);
+        block.put((byte) (runInput ^ previousInput));
+        putVarLong(runLength);
+        previousInput = runInput;
+        runLength = 0;
+    }
+
+    /**
+     * Hand the block to the background thread if there is no room for a record
+     *
+     * @param size The size of the next record
+     */
+    private void ensureRemaining(int size) {
+        if (block.remaining() < size) {
+            flush();
+            if (block.capacity() < size)
+                block = ByteBuffer.allocate(size);
+        }
+    }
+
+    /**
+     * Hand the block to the background thread to be compressed and written, and start a new one
+     */
+    private void flush() {
+        if (block.position() == 0)
+            return;
+        ByteBuffer full = block;
+        full.flip();
+        int tag = blockHasKeyframe ? KEYFRAME_BLOCK : BLOCK;
+        long startTick = blockTick;
+        WRITER.execute(() -> writeBlock(tag, startTick, full));
+
+        // Runs of the next block do not depend on the inputs before it
+        block = ByteBuffer.allocate(BLOCK_SIZE);
+        blockTick = tick;
+        blockHasKeyframe = false;
+        previousInput = 0;
+    }
+
+    /**
+     * Compress a block and write it with its header (tag, first tick, raw and
+     * compressed sizes), on the background thread
+     */
+    private void writeBlock(int tag, long startTick, ByteBuffer raw) {
+        DEFLATER.reset();
+        DEFLATER.setInput(raw.array(), 0, raw.limit());
+        DEFLATER.finish();
+        int length = 0;
+        while (!DEFLATER.finished()) {
+            if (length == deflated.length)
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            length += DEFLATER.deflate(deflated, length, deflated.length - length);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(1 + (3 * 10));
+        header.put((byte) tag);
+        putVarLong(header, startTick);
+        putVarLong(header, raw.limit());
+        putVarLong(header, length);
+        header.flip();
+        try {
+            int size = header.remaining() + length;
+            writeFully(header);
+            writeFully(ByteBuffer.wrap(deflated, 0, length));
+            bytes += size;
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Write all of a buffer to the file
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            CHANNEL.write(buffer);
+    }
+
+    /**
+     * Write an unsigned variable length number to the block
+     */
+    private void putVarLong(long value) {
+        putVarLong(block, value);
+    }
+
+    /**
+     * Write an unsigned variable length number, 7 bits per byte
+     *
+     * @param buffer The buffer to write to
+     * @param value The value (not negative)
+     */
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
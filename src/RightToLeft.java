@@ -1,13 +1,19 @@
 import bagel.*;
 import bagel.util.*;
 
+import java.nio.ByteBuffer;
+
 /**
  * Class that wraps all methods for object that move from right to left on the screen
  */
 public class RightToLeft {
-    protected Point position;
-    private final Image image;
-    private final DrawOptions options;
+    protected double x;
+    protected double y;
+    private double previousX;
+    private double previousY;
+    private Sprite image;
+    private DrawOptions options;
+    private final Box BOX = new Box();
 
     // Game variables
     protected boolean hasPassed;
@@ -15,26 +21,81 @@ public class RightToLeft {
     /**
      * Constructor for objects that move from right to left with no draw options (stand upright)
      *
-     * @param image Image of the object
-     * @param position Initial position of the object
+     * @param image Sprite of the object
+     * @param x Initial x-coordinate of the object
+     * @param y Initial y-coordinate of the object
      */
-    public RightToLeft(Image image, Point position) {
-        this.image = image;
-        this.position = position;
-        options = null;
+    public RightToLeft(Sprite image, double x, double y) {
+        reset(image, x, y, null);
     }
 
     /**
      * Constructor for objects that move from right to left with specified draw option variation
      *
-     * @param image Image of the object
-     * @param position Initial position of the object
+     * @param image Sprite of the object
+     * @param x Initial x-coordinate of the object
+     * @param y Initial y-coordinate of the object
      * @param options The draw options applied to the object for rendering
      */
-    public RightToLeft(Image image, Point position, DrawOptions options) {
+    public RightToLeft(Sprite image, double x, double y, DrawOptions options) {
+        reset(image, x, y, options);
+    }
+
+    /**
+     * Reinitialize a recycled object with a new image and position
+     *
+     * @param image Sprite of the object
+     * @param x Initial x-coordinate of the object
+     * @param y Initial y-coordinate of the object
+     * @param options The draw options applied to the object, or null if none
+     */
+    public void reset(Sprite image, double x, double y, DrawOptions options) {
         this.image = image;
-        this.position = position;
         this.options = options;
+        moveTo(x, y);
+        savePosition();
+        hasPassed = false;
+    }
+
+    /**
+     * Remember the current position as the start of the next tick (for interpolation)
+     */
+    public void savePosition() {
+        previousX = x;
+        previousY = y;
+    }
+
+    /**
+     * Place the centre of the object and its bounding box at a new position
+     * (not swept from where it was, for spawning)
+     *
+     * @param x The new x-coordinate
+     * @param y The new y-coordinate
+     */
+    protected void moveTo(double x, double y) {
+        this.x = x;
+        this.y = y;
+        BOX.setCentre(x, y, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Move the centre of the object and its bounding box to a new position,
+     * sweeping the box along the way for collisions
+     *
+     * @param x The new x-coordinate
+     * @param y The new y-coordinate
+     */
+    protected void slideTo(double x, double y) {
+        this.x = x;
+        this.y = y;
+        BOX.moveCentre(x, y, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Start a new collision step from the current position
+     */
+    public void clearMotion() {
+        BOX.clearMotion();
     }
 
     /**
@@ -44,7 +105,7 @@ public class RightToLeft {
      * @return Returns true if object has passed the bird
      */
     public boolean checkBirdPass(Bird bird) {
-        if (bird.getPosition().x > getBox().right())
+        if (bird.getX() > getBox().right())
             hasPassed = true;
         return hasPassed;
     }
@@ -52,10 +113,10 @@ public class RightToLeft {
     /**
      * Return the bounding box around the image
      *
-     * @return Returns Rectangle box of the image
+     * @return Returns the box of the image (kept up to date as the object moves)
      */
-    public Rectangle getBox() {
-        return image.getBoundingBoxAt(position);
+    public Box getBox() {
+        return BOX;
     }
 
     /**
@@ -68,30 +129,27 @@ public class RightToLeft {
     }
 
     /**
-     * Render the object on screen
+     * Render the object on screen between its previous and current position
+     *
+     * @param alpha Interpolation factor from the previous (0) to the current (1) position
      */
-    public void drawObject() {
+    public void drawObject(double alpha) {
+        double drawX = previousX + ((x - previousX) * alpha);
+        double drawY = previousY + ((y - previousY) * alpha);
         if (!(options == null))
-            image.draw(position.x, position.y, options);
+            image.draw(drawX, drawY, options);
         else
-            image.draw(position.x, position.y);
+            image.draw(drawX, drawY);
     }
 
     /**
-     * Shift the object from right to left at constant moveSpeed
-     */
-    public void leftShift() {
-        position = new Point(position.x - GameManager.moveSpeed, position.y);
-    }
-
-    /**
-     * Check if objects intersects/collides with another Rectangle
+     * Shift the object from right to left at the game speed
      *
-     * @param box Bounding box of other object
-     * @return Returns true if intersection exists
+     * @param speed The distance to move left
      */
-    public boolean checkIntersection(Rectangle box) {
-        return box.intersects(getBox());
+    public void leftShift(double speed) {
+        x -= speed;
+        BOX.translate(-speed, 0);
     }
 
     /**
@@ -115,11 +173,58 @@ public class RightToLeft {
     }
 
     /**
-     * Returns the current position of the object
+     * Returns a copy of the current position of the object
      *
-     * @return Returns position of object =
+     * @return Returns position of object
      */
     public Point getPosition() {
-        return position;
+        return new Point(x, y);
+    }
+
+    /**
+     * Returns the x-coordinate of the centre of the object
+     *
+     * @return Returns the x-coordinate
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinate of the centre of the object
+     *
+     * @return Returns the y-coordinate
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Write the position, bounding box and passed flag of the object (its image
+     * is not written, the owner restores it)
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putDouble(x);
+        out.putDouble(y);
+        out.putDouble(previousX);
+        out.putDouble(previousY);
+        BOX.writeState(out);
+        out.put((byte) (hasPassed ? 1 : 0));
+    }
+
+    /**
+     * Restore a state written by writeState
+     *
+     * @param in The buffer to read from
+     */
+    public void readState(ByteBuffer in) {
+        x = in.getDouble();
+        y = in.getDouble();
+        previousX = in.getDouble();
+        previousY = in.getDouble();
+        BOX.readState(in);
+        hasPassed = in.get() != 0;
     }
 }
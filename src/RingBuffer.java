@@ -0,0 +1,201 @@
+/**
+ * Array-backed queue of game objects, iterated by index from the oldest (head)
+ * to the newest (tail) element. Popping the head is O(1) and removing at an
+ * index shifts whichever side of the buffer is shorter.
+ *
+ * @param <T> The type of element stored
+ */
+public class RingBuffer<T> {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    /**
+     * Create an empty buffer with the default capacity
+     */
+    public RingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty buffer that can hold capacity elements before growing
+     *
+     * @param capacity The initial capacity (rounded up to a power of two)
+     */
+    public RingBuffer(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 1) - 1) << 1;
+        elements = new Object[Math.max(length, 1)];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Add an element at the tail, growing the buffer if it is full
+     *
+     * @param element The element to add
+     */
+    public void add(T element) {
+        if (size == elements.length)
+            grow();
+        elements[slot(size)] = element;
+        size += 1;
+    }
+
+    /**
+     * Returns the element at an index counted from the head
+     *
+     * @param index Index from 0 (head) to size - 1 (tail)
+     * @return Returns the element
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        checkIndex(index);
+        return (T) elements[slot(index)];
+    }
+
+    /**
+     * Returns the head element without removing it
+     *
+     * @return Returns the head, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return (size == 0) ? null : (T) elements[head];
+    }
+
+    /**
+     * Returns the tail element without removing it
+     *
+     * @return Returns the tail, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peekLast() {
+        return (size == 0) ? null : (T) elements[slot(size - 1)];
+    }
+
+    /**
+     * Remove and return the head element
+     *
+     * @return Returns the head, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0)
+            return null;
+        T element = (T) elements[head];
+        elements[head] = null;
+        head = slot(1);
+        size -= 1;
+        return element;
+    }
+
+    /**
+     * Remove the element at an index. When iterating by index the next element
+     * moves into the removed index, so the cursor must not be advanced.
+     *
+     * @param index Index from 0 (head) to size - 1 (tail)
+     * @return Returns the removed element
+     */
+    public T removeAt(int index) {
+        T element = get(index);
+
+        if (index < (size / 2)) {
+            // Shift the front towards the tail
+            for (int i = index; i > 0; --i)
+                elements[slot(i)] = elements[slot(i - 1)];
+            elements[head] = null;
+            head = slot(1);
+        } else {
+            // Shift the back towards the head
+            for (int i = index; i < size - 1; ++i)
+                elements[slot(i)] = elements[slot(i + 1)];
+            elements[slot(size - 1)] = null;
+        }
+        size -= 1;
+        return element;
+    }
+
+    /**
+     * Remove the first occurrence of an element (compared by identity)
+     *
+     * @param element The element to remove
+     * @return Returns true if the element was found
+     */
+    public boolean remove(T element) {
+        for (int i = 0; i < size; ++i)
+            if (elements[slot(i)] == element) {
+                removeAt(i);
+                return true;
+            }
+        return false;
+    }
+
+    /**
+     * Check if an element is in the buffer (compared by identity)
+     *
+     * @param element The element to look for
+     * @return Returns true if the element was found
+     */
+    public boolean contains(T element) {
+        for (int i = 0; i < size; ++i)
+            if (elements[slot(i)] == element)
+                return true;
+        return false;
+    }
+
+    /**
+     * Remove all elements
+     */
+    public void clear() {
+        for (int i = 0; i < size; ++i)
+            elements[slot(i)] = null;
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of elements
+     *
+     * @return Returns the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the buffer has no elements
+     *
+     * @return Returns true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Convert an index from the head to a slot in the array
+     */
+    private int slot(int index) {
+        return (head + index) & (elements.length - 1);
+    }
+
+    /**
+     * Double the capacity, unwrapping the elements to start at slot 0
+     */
+    private void grow() {
+        Object[] larger = new Object[elements.length * 2];
+        for (int i = 0; i < size; ++i)
+            larger[i] = elements[slot(i)];
+        elements = larger;
+        head = 0;
+    }
+
+    /**
+     * Throw if an index is outside the buffer
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+}
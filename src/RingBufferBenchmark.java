@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Microbenchmark comparing RingBuffer with the LinkedList (pipes/weapons queues)
+ * and ArrayList (bird weapons) it replaced, using the game's access pattern:
+ * iterate every element, remove one mid-iteration, pop the head and add a tail.
+ */
+public class RingBufferBenchmark {
+    private static final int[] SIZES = {4, 16, 64};
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final int OPERATIONS = 2000000;
+
+    // Prevents the JIT from removing the benchmark loops
+    private static long sink;
+
+    /**
+     * The entry point for the benchmark.
+     *
+     * @param args Command line arguments (unused)
+     */
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+                ringBuffer(size);
+                list(new LinkedList<>(), size);
+                list(new ArrayList<>(), size);
+            }
+
+            long ring = Long.MAX_VALUE, linked = Long.MAX_VALUE, array = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; ++i) {
+                ring = Math.min(ring, ringBuffer(size));
+                linked = Math.min(linked, list(new LinkedList<>(), size));
+                array = Math.min(array, list(new ArrayList<>(), size));
+            }
+
+            System.out.printf("size=%d ringBuffer=%.1f linkedList=%.1f arrayList=%.1f (ns/op)%n", size,
+                    (double) ring / OPERATIONS, (double) linked / OPERATIONS, (double) array / OPERATIONS);
+        }
+        System.out.println("sink=" + sink);
+    }
+
+    /**
+     * Run the access pattern against a ring buffer
+     *
+     * @param size Number of elements held
+     * @return Returns the elapsed nanoseconds
+     */
+    private static long ringBuffer(int size) {
+        RingBuffer<Integer> buffer = new RingBuffer<>();
+        for (int i = 0; i < size; ++i)
+            buffer.add(i);
+
+        long start = System.nanoTime();
+        for (int op = 0; op < OPERATIONS; ++op) {
+            long sum = 0;
+            for (int i = 0; i < buffer.size(); ++i) {
+                Integer element = buffer.get(i);
+                sum += element;
+                if (i == (size / 2)) {
+                    buffer.removeAt(i);
+                    buffer.add(element);
+                    break;
+                }
+            }
+            buffer.add(buffer.poll());
+            sink += sum;
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Run the access pattern against a java.util list
+     *
+     * @param list The empty list to fill
+     * @param size Number of elements held
+     * @return Returns the elapsed nanoseconds
+     */
+    private static long list(List<Integer> list, int size) {
+        for (int i = 0; i < size; ++i)
+            list.add(i);
+
+        long start = System.nanoTime();
+        for (int op = 0; op < OPERATIONS; ++op) {
+            long sum = 0;
+            int index = 0;
+            for (Integer element : list) {
+                sum += element;
+                if (index++ == (size / 2)) {
+                    list.remove(element);
+                    list.add(element);
+                    break;
+                }
+            }
+            list.add(list.remove(0));
+            sink += sum;
+        }
+        return System.nanoTime() - start;
+    }
+}
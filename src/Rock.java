@@ -1,20 +1,35 @@
-import bagel.*;
-
 /**
  * Creates a rock class that extends functionality from Weapon
  */
 public class Rock extends Weapon {
+    /**
+     * Image of a rock
+     */
+    public static final String IMAGE = "res/level-1/rock.png";
 
     /**
      * Constructor that feeds the rock parameters to the super (Weapon class)
      *
      * @param pipeSet The pipe set after which the weapon needs to be initialized
+     * @param manager The manager spawning the weapon
+     * @param placement Where the weapon goes between the pipe sets, from 0 (inclusive) to 1 (exclusive)
+     * @param y The y-coordinate of the weapon
      */
-    public Rock(PipeSet pipeSet) {
+    public Rock(PipeSet pipeSet, GameManager manager, double placement, int y) {
         super(
-                new Image("res/level-1/rock.png"),
+                Assets.get(IMAGE),
                 WEAPON_TYPE.ROCK,
-                pipeSet
+                pipeSet,
+                manager,
+                placement,
+                y
         );
     }
+
+    /**
+     * Create a rock to be restored from a checkpoint
+     */
+    public Rock() {
+        super(Assets.get(IMAGE), WEAPON_TYPE.ROCK);
+    }
 }
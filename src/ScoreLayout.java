@@ -0,0 +1,97 @@
+import bagel.*;
+
+/**
+ * Cached layout of a label followed by a score, e.g. "SCORE: 12". The digits are
+ * drawn one by one from pre-built strings using cached per-digit widths, and the
+ * positions are only recomputed when the score changes.
+ */
+public class ScoreLayout {
+    private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    private static final int MAX_DIGITS = 10;
+
+    private final Font FONT;
+    private final String LABEL;
+    private final double LABEL_WIDTH;
+    private final double[] DIGIT_WIDTHS;
+    private final boolean CENTRED;
+    private final double X;
+    private final double Y;
+
+    // Layout of the cached score
+    private final int[] DIGIT_VALUES;
+    private final double[] DIGIT_X;
+    private int digitCount;
+    private double labelX;
+    private long cachedScore;
+
+    /**
+     * Creates the layout for a label and a score
+     *
+     * @param font The font to draw with
+     * @param label The text before the score
+     * @param centred True to centre the text on x, false to start it at x
+     * @param x The x-coordinate of the start (or centre) of the text
+     * @param y The y-coordinate of the text
+     */
+    public ScoreLayout(Font font, String label, boolean centred, double x, double y) {
+        this.FONT = font;
+        this.LABEL = label;
+        this.CENTRED = centred;
+        this.X = x;
+        this.Y = y;
+        LABEL_WIDTH = font.getWidth(label);
+
+        DIGIT_WIDTHS = new double[DIGITS.length];
+        for (int i = 0; i < DIGITS.length; ++i)
+            DIGIT_WIDTHS[i] = font.getWidth(DIGITS[i]);
+
+        DIGIT_VALUES = new int[MAX_DIGITS];
+        DIGIT_X = new double[MAX_DIGITS];
+        cachedScore = Long.MIN_VALUE;
+    }
+
+    /**
+     * Draw the label and score
+     *
+     * @param score The score to draw (not negative)
+     */
+    public void draw(int score) {
+        if (score != cachedScore)
+            layout(score);
+
+        FONT.drawString(LABEL, labelX, Y);
+        for (int i = 0; i < digitCount; ++i)
+            FONT.drawString(DIGITS[DIGIT_VALUES[i]], DIGIT_X[i], Y);
+    }
+
+    /**
+     * Split the score into digits and position them after the label
+     */
+    private void layout(int score) {
+        cachedScore = score;
+
+        // Digits from most to least significant
+        digitCount = 0;
+        int remaining = score;
+        do {
+            DIGIT_VALUES[digitCount++] = remaining % 10;
+            remaining /= 10;
+        } while (remaining > 0);
+        for (int i = 0, j = digitCount - 1; i < j; ++i, --j) {
+            int temp = DIGIT_VALUES[i];
+            DIGIT_VALUES[i] = DIGIT_VALUES[j];
+            DIGIT_VALUES[j] = temp;
+        }
+
+        double width = LABEL_WIDTH;
+        for (int i = 0; i < digitCount; ++i)
+            width += DIGIT_WIDTHS[DIGIT_VALUES[i]];
+
+        labelX = CENTRED ? X - (width / 2.0) : X;
+        double x = labelX + LABEL_WIDTH;
+        for (int i = 0; i < digitCount; ++i) {
+            DIGIT_X[i] = x;
+            x += DIGIT_WIDTHS[DIGIT_VALUES[i]];
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The single source of randomness of a game session. One seed is split into
+ * independent streams for each kind of random decision, so that identical seeds
+ * give identical worlds and changing how one stream is used does not shift the others.
+ */
+public class SessionRandom {
+    private final RandomStream ROOT;
+    private final RandomStream PIPE_GAPS;
+    private final RandomStream WEAPON_TYPES;
+    private final RandomStream WEAPON_PLACEMENT;
+    private long seed;
+    private long courseSeed;
+
+    /**
+     * Create the random streams of a session
+     *
+     * @param seed The session seed
+     */
+    public SessionRandom(long seed) {
+        ROOT = new RandomStream(seed);
+        PIPE_GAPS = new RandomStream(seed);
+        WEAPON_TYPES = new RandomStream(seed);
+        WEAPON_PLACEMENT = new RandomStream(seed);
+        reseed(seed);
+    }
+
+    /**
+     * Restart every stream from a new session seed, as a new SessionRandom would
+     *
+     * @param seed The session seed
+     */
+    public void reseed(long seed) {
+        this.seed = seed;
+        ROOT.reseed(seed);
+        ROOT.splitInto(PIPE_GAPS);
+        ROOT.splitInto(WEAPON_TYPES);
+        ROOT.splitInto(WEAPON_PLACEMENT);
+        courseSeed = ROOT.nextLong();
+    }
+
+    /**
+     * Returns the session seed
+     *
+     * @return Returns the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the stream used for pipe types and gap positions
+     *
+     * @return Returns the pipe stream
+     */
+    public RandomStream getPipeGaps() {
+        return PIPE_GAPS;
+    }
+
+    /**
+     * Returns the stream used to choose rocks or bombs
+     *
+     * @return Returns the weapon type stream
+     */
+    public RandomStream getWeaponTypes() {
+        return WEAPON_TYPES;
+    }
+
+    /**
+     * Returns the stream used to place weapons between pipes
+     *
+     * @return Returns the weapon placement stream
+     */
+    public RandomStream getWeaponPlacement() {
+        return WEAPON_PLACEMENT;
+    }
+
+    /**
+     * Returns the seed of the endless course (each chunk is drawn from a stream of
+     * its own, so the seed never changes during play)
+     *
+     * @return Returns the course seed
+     */
+    public long getCourseSeed() {
+        return courseSeed;
+    }
+
+    /**
+     * Write the state of every stream
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        PIPE_GAPS.writeState(out);
+        WEAPON_TYPES.writeState(out);
+        WEAPON_PLACEMENT.writeState(out);
+    }
+
+    /**
+     * Restore the streams to a state written by writeState
+     *
+     * @param in The buffer to read from
+     */
+    public void readState(ByteBuffer in) {
+        PIPE_GAPS.readState(in);
+        WEAPON_TYPES.readState(in);
+        WEAPON_PLACEMENT.readState(in);
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.PrintWriter;
+
+/**
+ * Aggregated results of many game sessions: how long they survived, the score
+ * they reached and how they ended. Partial results from separate workers are
+ * combined with merge.
+ */
+public class SessionStats {
+    // Score buckets (higher scores count in the last one)
+    private static final int MAX_SCORE = 63;
+
+    private final int TICKS_PER_SECOND;
+    private final long[] DEATHS;
+    private final long[] SCORES;
+    private final long[] OUTCOMES;
+    private long sessions;
+    private long ticks;
+
+    /**
+     * Create empty statistics
+     *
+     * @param maxSeconds The longest a session is played for (in game seconds)
+     * @param ticksPerSecond Number of simulation ticks per game second
+     */
+    public SessionStats(int maxSeconds, int ticksPerSecond) {
+        this.TICKS_PER_SECOND = ticksPerSecond;
+        DEATHS = new long[maxSeconds + 1];
+        SCORES = new long[MAX_SCORE + 1];
+        OUTCOMES = new long[World.OUTCOME.values().length];
+        sessions = 0;
+        ticks = 0;
+    }
+
+    /**
+     * Add a finished (or timed out) session
+     *
+     * @param outcome How the session ended (PLAYING if it timed out)
+     * @param sessionTicks Number of ticks the session ran for
+     * @param score Total score reached
+     */
+    public void add(World.OUTCOME outcome, int sessionTicks, int score) {
+        sessions += 1;
+        ticks += sessionTicks;
+        OUTCOMES[outcome.ordinal()] += 1;
+        SCORES[Math.min(score, MAX_SCORE)] += 1;
+
+        // Only lost sessions end the survival curve
+        if (outcome == World.OUTCOME.HIT_PIPE || outcome == World.OUTCOME.OUT_OF_BOUNDS)
+            DEATHS[Math.min(sessionTicks / TICKS_PER_SECOND, DEATHS.length - 1)] += 1;
+    }
+
+    /**
+     * Add the sessions of other statistics to these
+     *
+     * @param other Statistics over the same number of seconds
+     * @return Returns these statistics
+     */
+    public SessionStats merge(SessionStats other) {
+        for (int i = 0; i < DEATHS.length; ++i)
+            DEATHS[i] += other.DEATHS[i];
+        for (int i = 0; i < SCORES.length; ++i)
+            SCORES[i] += other.SCORES[i];
+        for (int i = 0; i < OUTCOMES.length; ++i)
+            OUTCOMES[i] += other.OUTCOMES[i];
+        sessions += other.sessions;
+        ticks += other.ticks;
+        return this;
+    }
+
+    /**
+     * Returns the fraction of sessions not yet lost after the given game seconds
+     *
+     * @param seconds Game seconds since the start of the session
+     * @return Returns the survival fraction
+     */
+    public double getSurvival(int seconds) {
+        long lost = 0;
+        for (int i = 0; i < Math.min(seconds, DEATHS.length); ++i)
+            lost += DEATHS[i];
+        return (sessions == 0) ? 0 : 1.0 - ((double) lost / sessions);
+    }
+
+    /**
+     * Returns the score below which the given percentage of sessions fall
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return Returns the score
+     */
+    public int getScorePercentile(double percentile) {
+        long target = Math.max((long) Math.ceil((percentile / 100.0) * sessions), 1);
+        long seen = 0;
+        for (int score = 0; score < SCORES.length; ++score) {
+            seen += SCORES[score];
+            if (seen >= target)
+                return score;
+        }
+        return MAX_SCORE;
+    }
+
+    /**
+     * Returns the mean score of all sessions
+     *
+     * @return Returns the mean score
+     */
+    public double getMeanScore() {
+        long total = 0;
+        for (int score = 0; score < SCORES.length; ++score)
+            total += score * SCORES[score];
+        return (sessions == 0) ? 0 : (double) total / sessions;
+    }
+
+    /**
+     * Returns the fraction of sessions that ended in the given way
+     *
+     * @param outcome The outcome (PLAYING for timed out sessions)
+     * @return Returns the fraction of sessions
+     */
+    public double getOutcomeFraction(World.OUTCOME outcome) {
+        return (sessions == 0) ? 0 : (double) OUTCOMES[outcome.ordinal()] / sessions;
+    }
+
+    /**
+     * Returns the number of sessions added
+     *
+     * @return Returns the session count
+     */
+    public long getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Returns the number of ticks simulated over all sessions
+     *
+     * @return Returns the tick count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Write the survival curve, score distribution and outcomes as CSV rows
+     * (label,kind,x,value)
+     *
+     * @param out The writer of the CSV file
+     * @param label The label in the first column
+     */
+    public void writeCsv(PrintWriter out, String label) {
+        String quoted = "\"" + label + "\"";
+        for (int second = 0; second < DEATHS.length; ++second)
+            out.println(quoted + ",survival," + second + "," + getSurvival(second));
+        for (int score = 0; score < SCORES.length; ++score)
+            if (SCORES[score] > 0)
+                out.println(quoted + ",score," + score + "," + SCORES[score]);
+        for (World.OUTCOME outcome : World.OUTCOME.values())
+            out.println(quoted + ",outcome," + outcome + "," + OUTCOMES[outcome.ordinal()]);
+    }
+}
@@ -1,5 +1,9 @@
 import bagel.*;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Skeleton Code for SWEN20003 Project 2, Semester 2, 2021
  *
@@ -9,53 +13,121 @@ import bagel.*;
  */
 
 public class ShadowFlap extends AbstractGame {
-    // Constants
-    private final int LEVEL0_SCORE = 10;
-    private final int LEVEL1_SCORE = 30;
+    // Frame times are written here on exit unless --profile-csv is given
+    private static final String DEFAULT_PROFILE_CSV = "frame-times.csv";
+    // F5 saves and F9 loads this checkpoint unless --checkpoint is given
+    private static final String DEFAULT_CHECKPOINT = "checkpoint.bin";
+    // Recorded replays get a keyframe every five minutes of play
+    private static final int KEYFRAME_SECONDS = 300;
 
     // Game objects
     private final Messages MESSAGES;
-    private Bird BIRD;
-    private GameManager MANAGER;
-    private Background BACKGROUND;
+    private final Simulation SIMULATION;
+    private final Thread SIMULATION_THREAD;
+    private final BatchRenderer RENDERER;
+    private final FrameProfiler PROFILER;
+    private final String CHECKPOINT_PATH;
 
     // Game variables
-    private Integer score;
-    private Integer level;
-    private int frameCounter;
-    private boolean gameOn;
-    private boolean gameOver;
-    private boolean gameWon;
-    private boolean loadedObjects;
+    private boolean simulationStarted;
+    private boolean failureReported;
 
     /**
      * Constructor of the game engine used to create all the base objects of flappy bird
      */
     public ShadowFlap() {
-        super(1024, 768, "Flappy Bird");
-
-        // Game variables
-        score = 0;
-        level = 0;
-        frameCounter = 0;
-        gameOn = false;
-        gameWon = false;
-        gameOver = false;
-        loadedObjects = true;
-
-        BIRD = new Bird(level);
+        this(GameLoop.DEFAULT_TICK_RATE, System.nanoTime());
+    }
+
+    /**
+     * Constructor of the game engine with a given simulation rate and seed
+     *
+     * @param tickRate Number of simulation ticks per second, independent of the display refresh rate
+     * @param seed The seed of all randomness in the game
+     */
+    public ShadowFlap(int tickRate, long seed) {
+        this(tickRate, seed, false, null, null, DEFAULT_CHECKPOINT);
+    }
+
+    /**
+     * Constructor of the game engine that streams the inputs to a replay file, or
+     * plays them back from one instead of the keyboard
+     *
+     * @param tickRate Number of simulation ticks per second, independent of the display refresh rate
+     * @param seed The seed of all randomness in the game (the seed of the replay when replaying)
+     * @param endless True to play the last level endlessly
+     * @param recorder The replay file to record to, or null
+     * @param replay The replay file to play back, or null
+     * @param checkpointPath The checkpoint file saved with F5 and loaded with F9
+     */
+    public ShadowFlap(int tickRate, long seed, boolean endless, ReplayWriter recorder, ReplayReader replay,
+                      String checkpointPath) {
+        super(World.WIDTH, World.HEIGHT, "Flappy Bird");
+        CHECKPOINT_PATH = checkpointPath;
+
+        // Snapshots are drawn in batches through bagel
+        RENDERER = new BatchRenderer();
+        PROFILER = new FrameProfiler();
         MESSAGES = new Messages();
-        BACKGROUND = new Background(level);
-        MANAGER = new GameManager(level, BIRD);
+
+        // The world runs on its own thread, started with the first frame
+        SIMULATION = new Simulation(tickRate, seed, endless, recorder, replay, PROFILER);
+        SIMULATION_THREAD = new Thread(SIMULATION, "simulation");
+        SIMULATION_THREAD.setDaemon(true);
+        simulationStarted = false;
+        System.out.println("seed=" + seed);
     }
 
     /**
      * The entry point for the program.
-     * @param args Command line arguments
+     * @param args Command line arguments (--tick-rate N, --seed N, --record FILE, --replay FILE, --profile-csv FILE,
+     *             --checkpoint FILE, --endless)
+     * @throws IOException If the replay file cannot be read or written
      */
-    public static void main(String[] args) {
-        ShadowFlap game = new ShadowFlap();
+    public static void main(String[] args) throws IOException {
+        int tickRate = GameLoop.DEFAULT_TICK_RATE;
+        long seed = System.nanoTime();
+        String recordPath = null;
+        String replayPath = null;
+        String profilePath = DEFAULT_PROFILE_CSV;
+        String checkpointPath = DEFAULT_CHECKPOINT;
+        boolean endless = Arrays.asList(args).contains("--endless");
+        for (int i = 0; i < args.length - 1; ++i)
+            if (args[i].equals("--tick-rate"))
+                tickRate = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--seed"))
+                seed = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("--record"))
+                recordPath = args[i + 1];
+            else if (args[i].equals("--replay"))
+                replayPath = args[i + 1];
+            else if (args[i].equals("--profile-csv"))
+                profilePath = args[i + 1];
+            else if (args[i].equals("--checkpoint"))
+                checkpointPath = args[i + 1];
+
+        // The replay is streamed to disk while playing
+        ReplayReader replay = null;
+        ReplayWriter recorder = null;
+        if (replayPath != null) {
+            replay = ReplayReader.open(replayPath);
+            seed = replay.getSeed();
+            endless = replay.isEndless();
+        } else if (recordPath != null)
+            recorder = new ReplayWriter(recordPath, seed, 0, endless, tickRate * KEYFRAME_SECONDS);
+
+        ShadowFlap game = new ShadowFlap(tickRate, seed, endless, recorder, replay, checkpointPath);
         game.run();
+        game.stop();
+        game.writeProfile(profilePath);
+
+        if (recorder != null) {
+            recorder.close();
+            System.out.println("recorded " + recorder.getTicks() + " ticks (" + recorder.getBytes() + " bytes) to "
+                    + recordPath);
+        }
+        if (replay != null)
+            replay.close();
     }
 
     /**
@@ -64,109 +136,147 @@ public class ShadowFlap extends AbstractGame {
      */
     @Override
     public void update(Input input) {
-        // Background always displayed
-        BACKGROUND.displayBackground();
-
-        // Start counting number of frames as game starts
-        frameCounter += 1;
+        long frameStart = System.nanoTime();
+        if (!simulationStarted) {
+            SIMULATION_THREAD.start();
+            simulationStarted = true;
+        }
 
-        // Start message
-        if (!gameOn) {
-            if (!loadedObjects)
-                // Change objects pre-game during level transitions
-                levelUp();
-            else {
-                MESSAGES.getCentreMessage(Messages.START_MESSAGE);
-                if (level == 1)
-                    MESSAGES.getShootMessage();
-                if (input.wasPressed(Keys.SPACE)) {
-                    frameCounter = 0;
-                    gameOn = true;
-                }
-            }
-        } else {
-            // Game has started
-            if (!gameOver) {
-                // Draw pipes
-                MANAGER.drawObjects();
-
-                // Draw Score message
-                MESSAGES.getCurrentScore(score);
-
-                // Allow bird to jump
-                BIRD.pressedSpace(input.wasPressed(Keys.SPACE));
-
-                // Increase speed with L key
-                MANAGER.speedUp(input.wasPressed(Keys.L));
-
-                // Decrease speed with K key
-                MANAGER.slowDown(input.wasPressed(Keys.K));
-
-                // Check if any weapon has been picked up
-                MANAGER.pickWeapon();
-
-                // Check if 'S' has been pressed to shoot
-                MANAGER.shootWeapon(input.wasPressed(Keys.S));
-
-                // Check collision or game won
-                checkGameOver();
-
-                // Move objects to the left
-                MANAGER.leftShift();
-            } else {
-                // Game over
-                if (gameWon)
-                    MESSAGES.getCentreMessage(Messages.WIN_MESSAGE);
-                else {
-                    MESSAGES.getCentreMessage(Messages.GAME_OVER);
-                    MESSAGES.getFinalScore(score);
-                }
+        // A failed simulation cannot be drawn any further
+        RuntimeException failure = SIMULATION.getFailure();
+        if (failure != null) {
+            if (!failureReported) {
+                System.err.println("simulation stopped: " + failure);
+                failure.printStackTrace();
+                failureReported = true;
+                Window.close();
             }
+            return;
         }
 
+        // Key presses are kept by the simulation until a tick consumes them
+        SIMULATION.addInput(readInput(input));
+        PROFILER.lap(FrameProfiler.INPUT, frameStart);
+
+        // Draw the latest snapshot, between its tick and the one before
+        FrameSnapshot snapshot = SIMULATION.getSnapshots().acquire();
+        double alpha = (double) (System.nanoTime() - snapshot.getPublishTime()) / SIMULATION.getStep();
+        render(snapshot, Math.min(Math.max(alpha, 0), 1));
+
+        // Images of the next level are created ahead, one per frame
+        SIMULATION.getPrefetcher().createImage();
+
+        // F3 shows or hides the frame time overlay
+        if (input.wasPressed(Keys.F3))
+            PROFILER.toggleOverlay();
+        PROFILER.drawOverlay();
+
+        // F5 saves the session to the checkpoint file, F9 goes back to it
+        if (input.wasPressed(Keys.F5))
+            SIMULATION.requestSave(CHECKPOINT_PATH);
+        if (input.wasPressed(Keys.F9))
+            SIMULATION.requestLoad(CHECKPOINT_PATH);
+
         // Escape key to exit game
         if (input.wasPressed(Keys.ESCAPE))
             Window.close();
+        PROFILER.lap(FrameProfiler.FRAME, frameStart);
     }
 
     /**
-     * Check if game is over and the outcome
+     * Stop the simulation thread and wait for it to end
      */
-    public void checkGameOver() {
-        // Collision with pipes/Out of bounds and no lives left
-        if (MANAGER.checkCollisionAndLives() || BIRD.checkOutOfBoundsAndLives())
-            gameOver = true;
-
-        // Has passed the pipes successfully
-        score = MANAGER.checkPass();
-        if (level == 0) {
-            if (score >= LEVEL0_SCORE) {
-                level = 1;
-                frameCounter = 0;
-                gameOn = false;
-                loadedObjects = false;
-            }
-        } else {
-            if (score >= LEVEL1_SCORE) {
-                gameWon = true;
-                gameOver = true;
-            }
+    public void stop() {
+        SIMULATION.stop();
+        LockSupport.unpark(SIMULATION_THREAD);
+        try {
+            SIMULATION_THREAD.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Transition from level 0 to level 1 (reinitialize objects)
+     * Write the frame time histograms to a CSV file and print their summary,
+     * with the snapshot and prefetch counts
+     *
+     * @param path The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeProfile(String path) throws IOException {
+        PROFILER.writeCsv(path);
+        System.out.print(PROFILER.summary());
+        System.out.println("frame times written to " + path);
+
+        TripleBuffer<FrameSnapshot> snapshots = SIMULATION.getSnapshots();
+        System.out.printf("snapshots published=%d dropped=%d repeated=%d%n",
+                snapshots.getPublished(), snapshots.getDropped(), snapshots.getRepeated());
+        System.out.println("images prefetched=" + SIMULATION.getPrefetcher().getImagesCreated());
+    }
+
+    /**
+     * Convert the keys pressed this frame to the world input bitmask
+     *
+     * @param input Input from the user
+     * @return Returns the input bitmask
+     */
+    private int readInput(Input input) {
+        int mask = 0;
+        if (input.wasPressed(Keys.SPACE))
+            mask |= World.SPACE;
+        if (input.wasPressed(Keys.L))
+            mask |= World.SPEED_UP;
+        if (input.wasPressed(Keys.K))
+            mask |= World.SLOW_DOWN;
+        if (input.wasPressed(Keys.S))
+            mask |= World.SHOOT;
+        return mask;
+    }
+
+    /**
+     * Returns the renderer, whose draw call and texture switch counts describe the last frame
+     *
+     * @return Returns the batch renderer
      */
-    public void levelUp() {
-        if (frameCounter < 20)
-            MESSAGES.getCentreMessage(Messages.LEVEL_UP);
-        else {
-            score = 0;
-            // Load objects
-            BIRD = new Bird(level);
-            MANAGER = new GameManager(level, BIRD);
-            BACKGROUND = new Background(level);
-            loadedObjects = true;
+    public BatchRenderer getRenderer() {
+        return RENDERER;
+    }
+
+    /**
+     * Draw the background, objects and messages of a snapshot
+     *
+     * @param snapshot The snapshot to draw
+     * @param alpha Interpolation factor between the snapshot's tick and the one before
+     */
+    public void render(FrameSnapshot snapshot, double alpha) {
+        // Background, pipes, weapons and bird are drawn in batches, text goes on top
+        long time = System.nanoTime();
+        snapshot.render(RENDERER, alpha);
+        RENDERER.flush();
+        time = PROFILER.lap(FrameProfiler.FLUSH, time);
+
+        boolean playing = snapshot.isGameOn() && !snapshot.isGameOver();
+        if (!snapshot.isGameOn()) {
+            if (!snapshot.isLoaded())
+                MESSAGES.getCentreMessage(Messages.LEVEL_UP);
+            else {
+                // Start message
+                MESSAGES.getCentreMessage(Messages.START_MESSAGE);
+                if (snapshot.hasWeapons())
+                    MESSAGES.getShootMessage();
+            }
+        } else if (playing) {
+            // Draw Score message
+            MESSAGES.getCurrentScore(snapshot.getScore());
+        } else {
+            // Game over
+            if (snapshot.isGameWon())
+                MESSAGES.getCentreMessage(Messages.WIN_MESSAGE);
+            else {
+                MESSAGES.getCentreMessage(Messages.GAME_OVER);
+                MESSAGES.getFinalScore(snapshot.getScore());
+            }
         }
+        PROFILER.lap(FrameProfiler.MESSAGES, time);
     }
 }
@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the world (and the background scrolling with it) at a fixed tick rate on
+ * its own thread. Key presses come in through addInput; after every batch of
+ * ticks the simulation publishes a FrameSnapshot through a triple buffer for the
+ * render thread to draw. The inputs can be streamed to a replay file, or taken
+ * from one instead of the keyboard. Checkpoints are saved and loaded between
+ * ticks when requested. While a level is played, the assets of the next one
+ * are prefetched, and its prepared background is swapped in when it is loaded.
+ */
+public class Simulation implements Runnable {
+    private final GameLoop LOOP;
+    private final ReplayWriter RECORDER;
+    private final ReplayReader REPLAY;
+    private final FrameProfiler PROFILER;
+    private final AssetPrefetcher PREFETCHER;
+    private final TripleBuffer<FrameSnapshot> SNAPSHOTS;
+    private final AtomicInteger INPUT;
+    private World world;
+    private Background background;
+    private int backgroundLevel;
+    private volatile boolean running;
+    private volatile RuntimeException failure;
+    private volatile String saveRequest;
+    private volatile String loadRequest;
+    private boolean replayFailed;
+
+    /**
+     * Create a simulation of a new world
+     *
+     * @param tickRate Number of simulation ticks per second
+     * @param seed The seed of the world (the seed of the replay when replaying)
+     * @param endless True for an endless session (as recorded when replaying)
+     * @param recorder The replay file to stream the inputs to, or null
+     * @param replay The replay file to take the inputs from instead of the keyboard, or null
+     * @param profiler The profiler timing the ticks and snapshots
+     */
+    public Simulation(int tickRate, long seed, boolean endless, ReplayWriter recorder, ReplayReader replay,
+                      FrameProfiler profiler) {
+        LOOP = new GameLoop(tickRate);
+        RECORDER = recorder;
+        REPLAY = replay;
+        PROFILER = profiler;
+        PREFETCHER = new AssetPrefetcher(profiler);
+        INPUT = new AtomicInteger();
+
+        world = new World(seed, Difficulty.DEFAULT, endless);
+        world.setProfiler(profiler);
+        backgroundLevel = world.getLevel();
+        background = new Background(Levels.get(backgroundLevel));
+
+        SNAPSHOTS = new TripleBuffer<>(new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot());
+        publish();
+        running = true;
+    }
+
+    /**
+     * Add key presses (any thread); they are kept until a tick consumes them
+     *
+     * @param input Input bitmask of the keys pressed
+     */
+    public void addInput(int input) {
+        INPUT.accumulateAndGet(input, (pending, added) -> pending | added);
+    }
+
+    /**
+     * Tick the world until stopped, publishing a snapshot after each batch of
+     * ticks. An exception thrown by a tick stops the simulation and is kept for
+     * the render thread to report (see getFailure).
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                int ticks = LOOP.advance(System.nanoTime());
+                for (int i = 0; i < ticks; ++i)
+                    tick();
+                boolean loaded = checkpoint();
+                if ((ticks > 0) || loaded)
+                    publish();
+
+                LockSupport.parkNanos(LOOP.getTimeToNextTick());
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+            running = false;
+        }
+    }
+
+    /**
+     * Returns the exception that stopped the simulation (any thread)
+     *
+     * @return Returns the exception, or null if the simulation has not failed
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Save or load the checkpoint requested since the last tick, if any
+     *
+     * @return Returns true if the world was replaced by a loaded checkpoint
+     */
+    private boolean checkpoint() {
+        String path = saveRequest;
+        if (path != null) {
+            saveRequest = null;
+            try {
+                Checkpoint.save(world, path);
+                System.out.println("checkpoint saved to " + path);
+            } catch (IOException e) {
+                System.out.println("checkpoint not saved: " + e.getMessage());
+            }
+        }
+
+        path = loadRequest;
+        if (path == null)
+            return false;
+        loadRequest = null;
+        try {
+            world = Checkpoint.load(path);
+            world.setProfiler(PROFILER);
+            System.out.println("checkpoint loaded from " + path);
+
+            // The replay carries on from the loaded world
+            if (RECORDER != null)
+                RECORDER.keyframe(world);
+            return true;
+        } catch (IOException e) {
+            System.out.println("checkpoint not loaded: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Ask for the world to be saved to a checkpoint file before the next tick (any thread)
+     *
+     * @param path The file to write
+     */
+    public void requestSave(String path) {
+        saveRequest = path;
+    }
+
+    /**
+     * Ask for the world to be replaced by a checkpoint file before the next tick
+     * (any thread). Ignored while replaying.
+     *
+     * @param path The file to read
+     */
+    public void requestLoad(String path) {
+        if (REPLAY == null)
+            loadRequest = path;
+    }
+
+    /**
+     * Advance the world and background by one tick
+     */
+    private void tick() {
+        int tickInput = INPUT.getAndSet(0);
+        if (REPLAY != null)
+            tickInput = replayInput();
+        else if (RECORDER != null)
+            RECORDER.record(world, tickInput);
+
+        // The tick ending the countdown loads the next level
+        boolean loading = !world.isLoaded();
+        long start = System.nanoTime();
+        world.update(tickInput);
+        if (loading && world.isLoaded()) {
+            swapBackground();
+            PROFILER.lap(FrameProfiler.LEVEL_UP, start);
+        }
+
+        // Scenery only scrolls while playing
+        if (world.isGameOn() && !world.isGameOver())
+            background.update(world.getManager().getMoveSpeed());
+    }
+
+    /**
+     * Returns the input of the next tick of the replay, switching to the world of
+     * a keyframe met on the way
+     *
+     * @return Returns the input bitmask (no keys once the replay is finished or unreadable)
+     */
+    private int replayInput() {
+        if (replayFailed)
+            return 0;
+        try {
+            int input = REPLAY.next();
+            World restored = REPLAY.takeKeyframe();
+            if (restored != null) {
+                world = restored;
+                world.setProfiler(PROFILER);
+            }
+            return input;
+        } catch (IOException e) {
+            System.out.println("replay stopped: " + e.getMessage());
+            replayFailed = true;
+            return 0;
+        }
+    }
+
+    /**
+     * Record the world into the back snapshot and hand it to the render thread
+     */
+    private void publish() {
+        // A loaded checkpoint or keyframe may be on another level
+        swapBackground();
+        if (world.isLoaded())
+            PREFETCHER.request(world.getLevel() + 1);
+
+        FrameSnapshot snapshot = SNAPSHOTS.getBack();
+        snapshot.capture(world, background, PROFILER);
+        snapshot.setPublishTime(System.nanoTime());
+        SNAPSHOTS.publish();
+    }
+
+    /**
+     * Swap to the background of the world's level once it has been loaded,
+     * taking the prefetched one if it is ready
+     */
+    private void swapBackground() {
+        if (!world.isLoaded() || (backgroundLevel == world.getLevel()))
+            return;
+        backgroundLevel = world.getLevel();
+        background = PREFETCHER.takeBackground(backgroundLevel);
+        if (background == null)
+            background = new Background(Levels.get(backgroundLevel));
+    }
+
+    /**
+     * Stop ticking (the thread running the simulation then ends)
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Returns the snapshots published by the simulation, for the render thread
+     *
+     * @return Returns the snapshot buffer
+     */
+    public TripleBuffer<FrameSnapshot> getSnapshots() {
+        return SNAPSHOTS;
+    }
+
+    /**
+     * Returns the prefetcher of the next level's assets, whose images the render thread creates
+     *
+     * @return Returns the asset prefetcher
+     */
+    public AssetPrefetcher getPrefetcher() {
+        return PREFETCHER;
+    }
+
+    /**
+     * Returns the length of one tick
+     *
+     * @return Returns the tick length in nanoseconds
+     */
+    public long getStep() {
+        return LOOP.getStep();
+    }
+}
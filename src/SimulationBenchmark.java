@@ -0,0 +1,333 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Benchmark of the simulation hot paths, run headless for every combination of
+ * timescale and number of pipe sets in play. For each case it reports the best
+ * time per operation, the bytes allocated per operation and the collections
+ * (count and time) seen while measuring, so a change can be compared with the
+ * numbers before it. Setup runs outside the timed regions. The bytes of a round
+ * are counted with its setup, and each round is paired with a baseline round
+ * doing the same setup without the operations, whose bytes are subtracted (so
+ * the setup and the reads of the counter cancel out).
+ *
+ * Benchmarks: tick (a full game tick of the manager), collision
+ * (GameManager.sweepCollisions and checkCollisionAndLives with a shot rock on
+ * each steel pipe set, shot again before every test), spawn
+ * (addPipeSet with its weapon, recycled through warm pools) and leftShift
+ * (moving every pipe set and weapon).
+ */
+public class SimulationBenchmark {
+    private static final String[] BENCHMARKS = {"tick", "collision", "spawn", "leftShift"};
+    private static final int[] TIMESCALES = {0, 2, 4};
+    private static final int[] ENTITY_COUNTS = {4, 16, 64};
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final int OPERATIONS = 200000;
+    private static final long SEED = 20031;
+
+    // Pipe sets are spread between this x-coordinate and the right of the window
+    private static final double FIRST_PIPE_X = 600;
+
+    // A fresh set of objects is used every this many ticks, so they stay ahead of
+    // the bird (and their number stays constant) even at the highest timescale
+    private static final int TICKS_PER_SETUP = 16;
+
+    // Where shot weapons are placed on their pipe sets (inside the top pipe)
+    private static final double HIT_Y = 10;
+
+    // Initial size of the buffer holding a manager's state
+    private static final int STATE_CAPACITY = 4096;
+
+    // Prevents the JIT from removing the benchmark loops
+    private static long sink;
+
+    // Time of the operations of the current round (setup excluded)
+    private static long elapsed;
+    // Bytes allocated by the current round (setup included)
+    private static long allocated;
+
+    // True while running the setup of a round without its operations
+    private static boolean baseline;
+
+    /**
+     * The entry point for the benchmark.
+     *
+     * @param args Optional names of the benchmarks to run (all if none)
+     */
+    public static void main(String[] args) {
+        String[] benchmarks = (args.length > 0) ? args : BENCHMARKS;
+
+        for (String benchmark : benchmarks)
+            for (int timescale : TIMESCALES)
+                for (int entities : ENTITY_COUNTS)
+                    measure(benchmark, timescale, entities);
+        System.out.println("sink=" + sink);
+    }
+
+    /**
+     * Warm up and measure one benchmark, then print its results
+     *
+     * @param benchmark Name of the benchmark
+     * @param timescale Timescale the game runs at
+     * @param entities Number of pipe sets in play
+     */
+    private static void measure(String benchmark, int timescale, int entities) {
+        for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+            round(benchmark, timescale, entities, true);
+            round(benchmark, timescale, entities, false);
+        }
+
+        long best = Long.MAX_VALUE;
+        long bytes = 0;
+        long gcCount = 0;
+        long gcTime = 0;
+        for (int i = 0; i < ROUNDS; ++i) {
+            round(benchmark, timescale, entities, true);
+            bytes -= allocated;
+
+            long startCount = gcCount();
+            long startTime = gcTime();
+            round(benchmark, timescale, entities, false);
+            best = Math.min(best, elapsed);
+            bytes += allocated;
+            gcCount += gcCount() - startCount;
+            gcTime += gcTime() - startTime;
+        }
+
+        // Left out if the setup allocated more without the operations than with them
+        String bytesPerOp = (bytes < 0) ? "n/a"
+                : String.format("%.2f", (double) bytes / ((long) ROUNDS * OPERATIONS));
+        System.out.printf("benchmark=%s timescale=%d entities=%d ns/op=%.1f bytes/op=%s gcCount=%d gcMs=%d%n",
+                benchmark, timescale + 1, entities, (double) best / OPERATIONS, bytesPerOp, gcCount, gcTime);
+    }
+
+    /**
+     * Run one round of a benchmark, leaving its cost in elapsed and allocated
+     *
+     * @param benchmark Name of the benchmark
+     * @param timescale Timescale the game runs at
+     * @param entities Number of pipe sets in play
+     * @param setupOnly True for the baseline round, running the setup without the operations
+     */
+    private static void round(String benchmark, int timescale, int entities, boolean setupOnly) {
+        elapsed = 0;
+        baseline = setupOnly;
+        long startBytes = Soak.allocatedBytes();
+        switch (benchmark) {
+            case "tick":
+                tick(timescale, entities);
+                break;
+            case "collision":
+                collision(timescale, entities);
+                break;
+            case "spawn":
+                spawn(timescale, entities);
+                break;
+            case "leftShift":
+                leftShift(timescale, entities);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+        }
+        allocated = Soak.allocatedBytes() - startBytes;
+    }
+
+    /**
+     * Returns the number of operations to run in a timed region
+     *
+     * @param operations The operations of the region
+     * @return Returns the operations, or none in a baseline round
+     */
+    private static int count(int operations) {
+        return baseline ? 0 : operations;
+    }
+
+    /**
+     * Full game tick, in the order World runs it
+     */
+    private static void tick(int timescale, int entities) {
+        PipeSet[] pipes = new PipeSet[entities];
+        for (int done = 0; done < OPERATIONS; done += TICKS_PER_SETUP) {
+            Bird bird = new Bird(Levels.get(1));
+            GameManager manager = setUp(bird, timescale, pipes);
+
+            int ticks = count(Math.min(TICKS_PER_SETUP, OPERATIONS - done));
+            long start = System.nanoTime();
+            for (int op = 0; op < ticks; ++op) {
+                manager.update();
+                bird.pressedSpace(bird.getY() > (World.HEIGHT / 2.0));
+                manager.sweepCollisions();
+                manager.pickWeapon();
+                manager.shootWeapon(false);
+                if (manager.checkCollisionAndLives())
+                    sink += 1;
+                sink += manager.checkPass();
+                manager.leftShift();
+            }
+            elapsed += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Sweep the boxes in play and resolve the pairs found, as a game tick does,
+     * with a shot rock on each steel pipe set. Rocks cannot break steel, so every
+     * test uses up the rocks and leaves the pipe sets in play; the rocks are shot
+     * again before each test.
+     */
+    private static void collision(int timescale, int entities) {
+        Bird bird = new Bird(Levels.get(1));
+        PipeSet[] pipes = new PipeSet[entities];
+        GameManager manager = setUp(bird, timescale, pipes);
+        Weapon[] rocks = new Weapon[entities];
+        for (int i = 0; i < entities; ++i)
+            rocks[i] = new Rock(pipes[i], manager, 0.5, 300);
+
+        int operations = count(OPERATIONS);
+        for (int op = 0; op < operations; ++op) {
+            arm(bird, manager, pipes, rocks);
+
+            long start = System.nanoTime();
+            manager.sweepCollisions();
+            if (manager.checkCollisionAndLives())
+                sink += 1;
+            elapsed += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Give the bird a rock for each steel pipe set, shot and placed on it;
+     * rocks used up went to the manager's pools, which nothing draws from
+     * while measuring
+     *
+     * @param bird Bird shooting the rocks
+     * @param manager Manager the rocks belong to
+     * @param pipes Pipe sets to place the rocks on
+     * @param rocks The rocks, one per pipe set
+     */
+    private static void arm(Bird bird, GameManager manager, PipeSet[] pipes, Weapon[] rocks) {
+        for (int i = 0; i < pipes.length; ++i)
+            if (pipes[i].isSteel()) {
+                rocks[i].reset(pipes[i], manager, 0.5, 300);
+                bird.setWeapon(rocks[i]);
+                rocks[i].shootWeapon();
+                rocks[i].moveTo(pipes[i].getX(), HIT_Y);
+            }
+    }
+
+    /**
+     * Spawn pipe sets and their weapons in batches of entities (at most as many
+     * as the pools hold), each batch recycled into the pools before the next, so
+     * the pooled path is measured as in a game (the first batch, creating the
+     * objects, is not timed)
+     */
+    private static void spawn(int timescale, int entities) {
+        Bird bird = new Bird(Levels.get(1));
+        GameManager manager = setUp(bird, timescale, new PipeSet[0]);
+        ByteBuffer empty = snapshot(manager);
+        int batch = Math.min(entities, manager.getPipePool().getCapacity());
+
+        for (int op = 0; op < batch; ++op)
+            sink += manager.addPipeSet().getLEVEL();
+
+        for (int done = 0; done < OPERATIONS; done += batch) {
+            // Restoring the empty state releases the batch into the pools
+            empty.rewind();
+            manager.readState(empty);
+
+            int spawns = count(Math.min(batch, OPERATIONS - done));
+            long start = System.nanoTime();
+            for (int op = 0; op < spawns; ++op)
+                sink += manager.addPipeSet().getLEVEL();
+            elapsed += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Returns the state of a manager, as written for a checkpoint
+     *
+     * @param manager The manager to write
+     * @return Returns the state, from position 0 to its limit
+     */
+    private static ByteBuffer snapshot(GameManager manager) {
+        for (int capacity = STATE_CAPACITY; ; capacity *= 2) {
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            try {
+                manager.writeState(buffer);
+            } catch (BufferOverflowException e) {
+                continue;
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Move every pipe set and weapon one tick to the left
+     */
+    private static void leftShift(int timescale, int entities) {
+        Bird bird = new Bird(Levels.get(1));
+        PipeSet[] pipes = new PipeSet[entities];
+        GameManager manager = setUp(bird, timescale, pipes);
+
+        int operations = count(OPERATIONS);
+        long start = System.nanoTime();
+        for (int op = 0; op < operations; ++op)
+            manager.leftShift();
+        elapsed = System.nanoTime() - start;
+        sink += (long) pipes[0].getX();
+    }
+
+    /**
+     * Create a level 1 manager at the given timescale holding one pipe set (and
+     * weapon) for every slot of pipes, spread out ahead of the bird
+     *
+     * @param bird Bird in play
+     * @param timescale Timescale the game runs at
+     * @param pipes Filled with the pipe sets in play
+     * @return Returns the manager
+     */
+    private static GameManager setUp(Bird bird, int timescale, PipeSet[] pipes) {
+        GameManager manager = new GameManager(1, bird, new SessionRandom(SEED), Difficulty.DEFAULT);
+
+        // Spread at the initial speed, so the pipe sets are as far apart at every timescale
+        int shifts = (int) ((World.WIDTH - FIRST_PIPE_X) / (pipes.length * manager.getMoveSpeed()));
+        for (int i = 0; i < pipes.length; ++i) {
+            pipes[i] = manager.addPipeSet();
+            for (int k = 0; k < shifts; ++k)
+                manager.leftShift();
+        }
+        for (int i = 0; i < timescale; ++i)
+            manager.speedUp(true);
+
+        // Collisions are tested from here, not swept back along the spreading
+        manager.sweepCollisions();
+        return manager;
+    }
+
+    /**
+     * Returns the number of collections so far, over all collectors
+     *
+     * @return Returns the collection count
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(bean.getCollectionCount(), 0);
+        return count;
+    }
+
+    /**
+     * Returns the milliseconds spent collecting so far, over all collectors
+     *
+     * @return Returns the collection time
+     */
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(bean.getCollectionTime(), 0);
+        return time;
+    }
+}
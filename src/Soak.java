@@ -0,0 +1,169 @@
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Command line soak test that plays the game headless (no window) with a simple
+ * autopilot, restarting whenever a session ends, and reports the frame throughput.
+ * It then checks that the ticks of a warmed-up session allocate nothing, and
+ * exits with status 1 if they do.
+ */
+public class Soak {
+    private static final int DEFAULT_FRAMES = 1000000;
+
+    // Ticks into a level before its pools hold every object it needs
+    private static final int WARMUP_TICKS = 1000;
+    // Most steady-state ticks measured
+    private static final int CHECK_TICKS = 100000;
+
+    // Looked up once, as the lookup itself allocates
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The entry point for the soak test.
+     *
+     * @param args Optional number of frames to simulate, seed and "endless" to play endless sessions
+     */
+    public static void main(String[] args) {
+        int frames = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : System.nanoTime();
+        boolean endless = (args.length > 2) && args[2].equals("endless");
+        System.out.println("seed=" + seed);
+
+        // Each session gets its own seed drawn from the run seed
+        SplittableRandom seeds = new SplittableRandom(seed);
+        World world = new World(seeds.nextLong(), Difficulty.DEFAULT, endless);
+        int sessions = 1;
+        int bestScore = 0;
+
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; ++i) {
+            world.update(autopilot(world));
+
+            if (world.isGameOver()) {
+                bestScore = Math.max(bestScore, world.getScore());
+                world = new World(seeds.nextLong(), Difficulty.DEFAULT, endless);
+                sessions += 1;
+            }
+        }
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+        double bytesPerFrame = (double) (allocatedBytes() - startBytes) / frames;
+
+        System.out.printf("frames=%d sessions=%d bestScore=%d elapsedMs=%.1f framesPerMs=%.1f%n",
+                frames, sessions, bestScore, elapsedMs, frames / elapsedMs);
+        System.out.printf("allocatedBytesPerFrame=%.1f%n", bytesPerFrame);
+        System.out.printf("assets=%d hits=%d misses=%d%n", Assets.size(), Assets.getHits(), Assets.getMisses());
+
+        // Pools of the last session
+        GameManager manager = world.getManager();
+        System.out.println("pipePool " + manager.getPipePool());
+        System.out.println("rockPool " + manager.getRockPool());
+        System.out.println("bombPool " + manager.getBombPool());
+        if (manager.getCourse() != null)
+            System.out.println("course " + manager.getCourse());
+
+        if (!checkSteadyState(seeds, endless))
+            System.exit(1);
+    }
+
+    /**
+     * Measure the bytes allocated by the steady-state ticks of sessions: a level
+     * is measured once it has been played for WARMUP_TICKS, until it ends, and
+     * sessions are replaced (outside the measurement) until CHECK_TICKS have
+     * been measured
+     *
+     * @param seeds Source of the session seeds
+     * @param endless True to play endless sessions
+     * @return Returns true if the measured ticks allocated nothing
+     */
+    private static boolean checkSteadyState(SplittableRandom seeds, boolean endless) {
+        long probe = probeBytes();
+        long bytes = 0;
+        int ticks = 0;
+
+        World world = new World(seeds.nextLong(), Difficulty.DEFAULT, endless);
+        int level = world.getLevel();
+        int ticksInLevel = 0;
+        while (ticks < CHECK_TICKS) {
+            if (ticksInLevel >= WARMUP_TICKS) {
+                long startBytes = allocatedBytes();
+                while ((ticks < CHECK_TICKS) && isPlaying(world, level)) {
+                    world.update(autopilot(world));
+                    ticks += 1;
+                }
+                bytes += allocatedBytes() - startBytes - probe;
+                ticksInLevel = 0;
+            }
+
+            world.update(autopilot(world));
+            if (world.isGameOver()) {
+                world = new World(seeds.nextLong(), Difficulty.DEFAULT, endless);
+                ticksInLevel = 0;
+            } else if (!isPlaying(world, level)) {
+                ticksInLevel = 0;
+            } else {
+                ticksInLevel += 1;
+            }
+            level = world.getLevel();
+        }
+
+        System.out.printf("steadyTicks=%d steadyBytesPerTick=%.2f%n", ticks, (double) Math.max(bytes, 0) / ticks);
+        if (bytes > 0) {
+            System.err.printf("FAIL: %d bytes allocated over %d steady-state ticks%n", bytes, ticks);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check if a session is still playing a level
+     *
+     * @param world The session
+     * @param level The level number
+     * @return Returns true if the level is on and the game is not over
+     */
+    private static boolean isPlaying(World world, int level) {
+        return world.isGameOn() && !world.isGameOver() && (world.getLevel() == level);
+    }
+
+    /**
+     * Returns the bytes allocated by one pair of reads of the allocation counter
+     *
+     * @return Returns the fewest bytes seen for a pair of reads
+     */
+    private static long probeBytes() {
+        final int reads = 10000;
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < reads; ++i) {
+            long startBytes = allocatedBytes();
+            least = Math.min(least, allocatedBytes() - startBytes);
+        }
+        return least;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread (-1 if not supported)
+     *
+     * @return Returns the allocated bytes
+     */
+    public static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    /**
+     * Flap whenever the bird drops below the centre of the next gap
+     *
+     * @param world The session being played
+     * @return Returns the input bitmask for this frame
+     */
+    public static int autopilot(World world) {
+        if (!world.isGameOn())
+            return World.SPACE;
+
+        PipeSet next = world.getManager().getNextPipe();
+        double target = (next == null) ? World.HEIGHT / 2.0 : next.getGapCentre();
+        return (world.getBird().getY() > target) ? World.SPACE : 0;
+    }
+}
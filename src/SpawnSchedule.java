@@ -0,0 +1,263 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The pipe sets and weapons of a level, drawn from the session's random streams
+ * when the level is loaded and kept in flat tables (gap centre, pipe material and
+ * weapon slot of each pipe set), so spawning during play is a table lookup. A
+ * schedule holds enough entries for the level to be finished; if play outlasts
+ * it, the next entries are drawn where the streams left off. A schedule can also
+ * be one fixed-size chunk of an endless course, compiled from the chunk's own
+ * streams by the course generator.
+ */
+public class SpawnSchedule {
+    /**
+     * Pipe material: plastic
+     */
+    public static final int PLASTIC = 0;
+    /**
+     * Pipe material: steel (with flames)
+     */
+    public static final int STEEL = 1;
+    /**
+     * Weapon slot: no weapon
+     */
+    public static final int NO_WEAPON = -1;
+    /**
+     * Weapon slot: rock
+     */
+    public static final int ROCK = 0;
+    /**
+     * Weapon slot: bomb
+     */
+    public static final int BOMB = 1;
+
+    // Entries beyond the target score and lives (pipe sets still on screen at the end)
+    private static final int MARGIN = 8;
+
+    private final Level LEVEL;
+    private final Difficulty DIFFICULTY;
+    private final SessionRandom RANDOM;
+
+    // One entry per pipe set
+    private int[] gaps;
+    private byte[] materials;
+    private byte[] weapons;
+    private double[] placements;
+    private int[] weaponYs;
+    private int next;
+
+    /**
+     * Compile the schedule of a level
+     *
+     * @param level The level to spawn
+     * @param difficulty The spawning parameters of the session
+     * @param random The random streams of the session
+     */
+    public SpawnSchedule(Level level, Difficulty difficulty, SessionRandom random) {
+        this.LEVEL = level;
+        this.DIFFICULTY = difficulty;
+        this.RANDOM = random;
+        allocate(level.getScore() + level.getLives() + MARGIN);
+        compile();
+    }
+
+    /**
+     * Create an empty chunk of a course, to be filled by compile
+     *
+     * @param level The level to spawn
+     * @param difficulty The spawning parameters of the session
+     * @param length The number of entries of the chunk
+     */
+    public SpawnSchedule(Level level, Difficulty difficulty, int length) {
+        this.LEVEL = level;
+        this.DIFFICULTY = difficulty;
+        this.RANDOM = null;
+        allocate(length);
+        next = length;
+    }
+
+    /**
+     * Draw the schedule of the level again from where the session streams are
+     * now, as a new schedule would (level schedules only)
+     */
+    public void restart() {
+        int length = LEVEL.getScore() + LEVEL.getLives() + MARGIN;
+        if (length != gaps.length)
+            allocate(length);
+        compile();
+    }
+
+    /**
+     * Make room for a number of entries
+     */
+    private void allocate(int length) {
+        gaps = new int[length];
+        materials = new byte[length];
+        weapons = new byte[length];
+        placements = new double[length];
+        weaponYs = new int[length];
+    }
+
+    /**
+     * Draw every entry of the tables from the session streams
+     */
+    private void compile() {
+        compile(RANDOM.getPipeGaps(), RANDOM.getWeaponTypes(), RANDOM.getWeaponPlacement());
+    }
+
+    /**
+     * Draw every entry of the tables, in spawning order, and start from the first
+     *
+     * @param pipes The stream of pipe materials and gap centres
+     * @param types The stream of weapon types
+     * @param placement The stream of weapon positions
+     */
+    public void compile(RandomStream pipes, RandomStream types, RandomStream placement) {
+        int lowerBound = DIFFICULTY.getYLowerBound();
+        int range = DIFFICULTY.getYUpperBound() - lowerBound;
+        int steel = LEVEL.getSteelPercent();
+
+        for (int i = 0; i < gaps.length; ++i) {
+            if (steel == 0 || steel == 100)
+                materials[i] = (byte) ((steel == 0) ? PLASTIC : STEEL);
+            else
+                materials[i] = (byte) ((pipes.nextInt(100) < steel) ? STEEL : PLASTIC);
+
+            if (LEVEL.hasRandomGaps())
+                gaps[i] = pipes.nextInt(range) + lowerBound;
+            else
+                gaps[i] = DIFFICULTY.getFixedGap(pipes.nextInt(DIFFICULTY.getFixedGapCount()));
+
+            if (LEVEL.hasWeapons()) {
+                weapons[i] = (byte) ((types.nextInt(2) == 0) ? ROCK : BOMB);
+                placements[i] = placement.nextDouble();
+                weaponYs[i] = placement.nextInt(range) + lowerBound;
+            } else
+                weapons[i] = NO_WEAPON;
+        }
+        next = 0;
+    }
+
+    /**
+     * Returns the entry of the next pipe set to spawn, moving past it
+     *
+     * @return Returns the entry index
+     */
+    public int next() {
+        if (next == gaps.length) {
+            if (RANDOM == null)
+                throw new IllegalStateException("Chunk finished");
+            compile();
+        }
+        return next++;
+    }
+
+    /**
+     * Returns true if every entry of a course chunk has been spawned (a level
+     * schedule draws more entries instead, so is never finished)
+     *
+     * @return Returns true if the chunk is used up
+     */
+    public boolean isFinished() {
+        return (RANDOM == null) && (next == gaps.length);
+    }
+
+    /**
+     * Returns the gap centre of an entry
+     *
+     * @param entry The entry index
+     * @return Returns the gap centre
+     */
+    public int getGap(int entry) {
+        return gaps[entry];
+    }
+
+    /**
+     * Returns the pipe material of an entry
+     *
+     * @param entry The entry index
+     * @return Returns PLASTIC or STEEL
+     */
+    public int getMaterial(int entry) {
+        return materials[entry];
+    }
+
+    /**
+     * Returns the weapon spawned after the pipe set of an entry
+     *
+     * @param entry The entry index
+     * @return Returns NO_WEAPON, ROCK or BOMB
+     */
+    public int getWeapon(int entry) {
+        return weapons[entry];
+    }
+
+    /**
+     * Returns where the weapon of an entry is placed between its pipe set and the next
+     *
+     * @param entry The entry index
+     * @return Returns the fraction of the free distance, from 0 (inclusive) to 1 (exclusive)
+     */
+    public double getPlacement(int entry) {
+        return placements[entry];
+    }
+
+    /**
+     * Returns the y-coordinate of the weapon of an entry
+     *
+     * @param entry The entry index
+     * @return Returns the weapon y
+     */
+    public int getWeaponY(int entry) {
+        return weaponYs[entry];
+    }
+
+    /**
+     * Returns the number of entries in the tables
+     *
+     * @return Returns the schedule length
+     */
+    public int getLength() {
+        return gaps.length;
+    }
+
+    /**
+     * Write the tables and the next entry
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putInt(gaps.length);
+        out.putInt(next);
+        for (int i = 0; i < gaps.length; ++i) {
+            out.putInt(gaps[i]);
+            out.put(materials[i]);
+            out.put(weapons[i]);
+            out.putDouble(placements[i]);
+            out.putInt(weaponYs[i]);
+        }
+    }
+
+    /**
+     * Restore tables written by writeState
+     *
+     * @param in The buffer to read from
+     */
+    public void readState(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || (length == 0 && RANDOM != null))
+            throw new IllegalArgumentException("Invalid schedule length " + length);
+        if (length != gaps.length)
+            allocate(length);
+        next = in.getInt();
+        if (next < 0 || next > length)
+            throw new IllegalArgumentException("Invalid schedule entry " + next);
+        for (int i = 0; i < length; ++i) {
+            gaps[i] = in.getInt();
+            materials[i] = in.get();
+            weapons[i] = in.get();
+            placements[i] = in.getDouble();
+            weaponYs[i] = in.getInt();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import bagel.*;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sprite metadata (path and dimensions) read from the PNG header, with the
+ * bagel Image only created the first time the sprite is actually drawn. A
+ * sprite packed into an atlas is drawn from a section of the atlas sheet
+ * instead of its own image.
+ */
+public class Sprite {
+    // Offset of the IHDR width/height fields (8 byte signature, 4 byte length, 4 byte type)
+    private static final int PNG_DIMENSION_OFFSET = 16;
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private static Renderer renderer = new HeadlessRenderer();
+    private static int layer = Renderer.BACKGROUND_LAYER;
+
+    private final int ID;
+    private final String PATH;
+    private final double WIDTH;
+    private final double HEIGHT;
+    private Image image;
+
+    // Atlas sheet and sections the sprite is drawn from (null if not packed)
+    private final Sprite SHEET;
+    private final DrawOptions SECTION;
+    private final DrawOptions ROTATED_SECTION;
+
+    /**
+     * Creates a sprite from a PNG file without decoding the image
+     *
+     * @param path Path of the PNG file
+     */
+    public Sprite(String path) {
+        this(path, null);
+    }
+
+    /**
+     * Creates a sprite from a PNG file without decoding the image, drawn from
+     * the atlas if it is packed there
+     *
+     * @param path Path of the PNG file
+     * @param atlas The atlas to look the sprite up in, or null
+     */
+    public Sprite(String path, Atlas atlas) {
+        this.PATH = path;
+        ID = NEXT_ID.getAndIncrement();
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            in.skipBytes(PNG_DIMENSION_OFFSET);
+            WIDTH = in.readInt();
+            HEIGHT = in.readInt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read sprite " + path, e);
+        }
+
+        int region = (atlas == null) ? -1 : atlas.find(path, WIDTH, HEIGHT);
+        if (region < 0) {
+            SHEET = null;
+            SECTION = null;
+            ROTATED_SECTION = null;
+        } else {
+            SHEET = atlas.getSheet();
+            SECTION = atlas.getSection(region);
+            ROTATED_SECTION = atlas.getRotatedSection(region);
+        }
+    }
+
+    /**
+     * Set the renderer used by all sprites (headless by default)
+     *
+     * @param renderer The renderer to draw with
+     */
+    public static void setRenderer(Renderer renderer) {
+        Sprite.renderer = renderer;
+    }
+
+    /**
+     * Set the layer the following draws go to
+     *
+     * @param layer The layer (see Renderer)
+     */
+    public static void setLayer(int layer) {
+        Sprite.layer = layer;
+    }
+
+    /**
+     * Draw the sprite centred at the given position
+     *
+     * @param x The x-coordinate of the centre
+     * @param y The y-coordinate of the centre
+     */
+    public void draw(double x, double y) {
+        renderer.draw(this, x, y, null, layer);
+    }
+
+    /**
+     * Draw the sprite centred at the given position with draw options
+     *
+     * @param x The x-coordinate of the centre
+     * @param y The y-coordinate of the centre
+     * @param options The draw options applied to the sprite
+     */
+    public void draw(double x, double y, DrawOptions options) {
+        renderer.draw(this, x, y, options, layer);
+    }
+
+    /**
+     * Draw the sprite with its top-left corner at the given position
+     *
+     * @param x The x-coordinate of the top-left corner
+     * @param y The y-coordinate of the top-left corner
+     */
+    public void drawFromTopLeft(double x, double y) {
+        renderer.drawFromTopLeft(this, x, y, layer);
+    }
+
+    /**
+     * Draw the sprite through bagel now, from the atlas sheet if it is packed
+     * (requires a window)
+     *
+     * @param x The x-coordinate of the centre, or of the top-left corner
+     * @param y The y-coordinate of the centre, or of the top-left corner
+     * @param options The draw options applied, or null if none
+     * @param fromTopLeft True to place the top-left corner instead of the centre
+     */
+    public void drawImage(double x, double y, DrawOptions options, boolean fromTopLeft) {
+        DrawOptions section = getSection(options);
+        Image drawn = (section == null) ? getOwnImage() : SHEET.getImage();
+        DrawOptions drawOptions = (section == null) ? options : section;
+
+        if (fromTopLeft) {
+            if (drawOptions == null)
+                drawn.drawFromTopLeft(x, y);
+            else
+                drawn.drawFromTopLeft(x, y, drawOptions);
+        } else if (drawOptions == null)
+            drawn.draw(x, y);
+        else
+            drawn.draw(x, y, drawOptions);
+    }
+
+    /**
+     * Returns the atlas section a draw with the given options uses
+     *
+     * @return Returns the section options, or null if the draw uses the sprite's own image
+     */
+    private DrawOptions getSection(DrawOptions options) {
+        if (SHEET == null)
+            return null;
+        if (options == null)
+            return SECTION;
+        if (options == Assets.ROTATED)
+            return ROTATED_SECTION;
+        // Other options cannot be combined with a section
+        return null;
+    }
+
+    /**
+     * Returns the bagel image the sprite is drawn from (the atlas sheet if it is
+     * packed), loading it on first use (requires a window)
+     *
+     * @return Returns the image
+     */
+    public Image getImage() {
+        return (SHEET == null) ? getOwnImage() : SHEET.getImage();
+    }
+
+    /**
+     * Returns the sprite's own bagel image, loading it on first use
+     */
+    private Image getOwnImage() {
+        if (image == null)
+            image = new Image(PATH);
+        return image;
+    }
+
+    /**
+     * Returns true if the bagel image the sprite is drawn from has been created
+     *
+     * @return Returns true if the image is loaded
+     */
+    public boolean hasImage() {
+        return (SHEET == null) ? (image != null) : SHEET.hasImage();
+    }
+
+    /**
+     * Returns true if the sprite is drawn from an atlas sheet
+     *
+     * @return Returns true if the sprite is packed
+     */
+    public boolean isPacked() {
+        return SHEET != null;
+    }
+
+    /**
+     * Returns the id of the texture a draw with the given options binds (the
+     * atlas sheet's id for a packed sprite)
+     *
+     * @param options The draw options applied, or null if none
+     * @return Returns the texture id
+     */
+    public int getTextureId(DrawOptions options) {
+        return (getSection(options) == null) ? ID : SHEET.getId();
+    }
+
+    /**
+     * Returns the unique id of the sprite (one per texture)
+     *
+     * @return Returns the id
+     */
+    public int getId() {
+        return ID;
+    }
+
+    /**
+     * Returns the path of the sprite
+     *
+     * @return Returns the path
+     */
+    public String getPath() {
+        return PATH;
+    }
+
+    /**
+     * Returns the width of the sprite
+     *
+     * @return Returns the width
+     */
+    public double getWidth() {
+        return WIDTH;
+    }
+
+    /**
+     * Returns the height of the sprite
+     *
+     * @return Returns the height
+     */
+    public double getHeight() {
+        return HEIGHT;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue from one producer thread to one consumer thread.
+ * Values are kept in a ring of slots; the producer only writes the tail and the
+ * consumer only writes the head, so neither side ever waits on the other.
+ *
+ * @param <T> Type of the values
+ */
+public class SpscQueue<T> {
+    private final Object[] SLOTS;
+    private final int MASK;
+
+    // Next slot to take, written by the consumer
+    private final AtomicLong HEAD;
+    // Next slot to fill, written by the producer
+    private final AtomicLong TAIL;
+
+    // Each side's last view of the other side's counter
+    private long cachedHead;
+    private long cachedTail;
+
+    /**
+     * Create an empty queue
+     *
+     * @param capacity The maximum number of values held (rounded up to a power of two)
+     */
+    public SpscQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        SLOTS = new Object[size];
+        MASK = size - 1;
+        HEAD = new AtomicLong();
+        TAIL = new AtomicLong();
+    }
+
+    /**
+     * Add a value at the tail (producer only)
+     *
+     * @param value The value to add (not null)
+     * @return Returns false if the queue is full
+     */
+    public boolean offer(T value) {
+        long tail = TAIL.get();
+        if ((tail - cachedHead) == SLOTS.length) {
+            cachedHead = HEAD.get();
+            if ((tail - cachedHead) == SLOTS.length)
+                return false;
+        }
+        SLOTS[(int) tail & MASK] = value;
+        TAIL.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Take the value at the head (consumer only)
+     *
+     * @return Returns the oldest value, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long head = HEAD.get();
+        if (head == cachedTail) {
+            cachedTail = TAIL.get();
+            if (head == cachedTail)
+                return null;
+        }
+        int index = (int) head & MASK;
+        T value = (T) SLOTS[index];
+        SLOTS[index] = null;
+        HEAD.lazySet(head + 1);
+        return value;
+    }
+
+    /**
+     * Returns true if there is no free slot (exact for the producer, a snapshot for anyone else)
+     *
+     * @return Returns true if the queue is full
+     */
+    public boolean isFull() {
+        return size() == SLOTS.length;
+    }
+
+    /**
+     * Returns the number of values held (a snapshot when called during use)
+     *
+     * @return Returns the size
+     */
+    public int size() {
+        long head = HEAD.get();
+        return (int) Math.min(TAIL.get() - head, SLOTS.length);
+    }
+
+    /**
+     * Returns the maximum number of values held
+     *
+     * @return Returns the capacity
+     */
+    public int getCapacity() {
+        return SLOTS.length;
+    }
+}
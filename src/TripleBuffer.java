@@ -0,0 +1,106 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer handing the latest of a stream of values from one
+ * writer thread to one reader thread. The writer fills the back buffer and
+ * publishes it; the reader takes the most recent published buffer. Neither side
+ * ever waits, and a buffer is never written while the reader holds it.
+ *
+ * @param <T> Type of the buffers
+ */
+public class TripleBuffer<T> {
+    // The middle index is stored with a flag telling if it holds an unread value
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final T[] BUFFERS;
+    private final AtomicInteger MIDDLE;
+
+    // Owned by the writer
+    private int back;
+    private volatile long published;
+    private volatile long dropped;
+
+    // Owned by the reader
+    private int front;
+    private volatile long repeated;
+
+    /**
+     * Create a triple buffer from its three buffers
+     *
+     * @param first The buffer first read (before anything is published)
+     * @param second The buffer first written
+     * @param third The spare buffer
+     */
+    @SuppressWarnings("unchecked")
+    public TripleBuffer(T first, T second, T third) {
+        BUFFERS = (T[]) new Object[] {first, second, third};
+        front = 0;
+        back = 1;
+        MIDDLE = new AtomicInteger(2);
+    }
+
+    /**
+     * Returns the buffer the writer fills next (writer only)
+     *
+     * @return Returns the back buffer
+     */
+    public T getBack() {
+        return BUFFERS[back];
+    }
+
+    /**
+     * Publish the back buffer and take a free one as the new back buffer (writer only)
+     */
+    public void publish() {
+        int previous = MIDDLE.getAndSet(back | FRESH);
+        back = previous & INDEX_MASK;
+        published = published + 1;
+
+        // The reader never saw the value that was waiting
+        if ((previous & FRESH) != 0)
+            dropped = dropped + 1;
+    }
+
+    /**
+     * Returns the most recently published buffer, or the same buffer as last time
+     * if nothing was published since (reader only)
+     *
+     * @return Returns the front buffer
+     */
+    public T acquire() {
+        if ((MIDDLE.get() & FRESH) == 0) {
+            repeated = repeated + 1;
+            return BUFFERS[front];
+        }
+        front = MIDDLE.getAndSet(front) & INDEX_MASK;
+        return BUFFERS[front];
+    }
+
+    /**
+     * Returns the number of buffers published
+     *
+     * @return Returns the published count
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * Returns the number of published buffers replaced before the reader took them
+     *
+     * @return Returns the dropped count
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the number of reads that got the same buffer as the read before
+     *
+     * @return Returns the repeated count
+     */
+    public long getRepeated() {
+        return repeated;
+    }
+}
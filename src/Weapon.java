@@ -1,6 +1,4 @@
-import bagel.*;
-import bagel.util.*;
-import java.util.Random;
+import java.nio.ByteBuffer;
 
 /**
  * Contains all standard methods used by the weapon.
@@ -17,6 +15,10 @@ public class Weapon extends RightToLeft {
     private boolean isShot;
     private boolean isPicked;
 
+    // Earliest pipe set reached by the shot weapon in the current collision step
+    private PipeSet firstHit;
+    private double firstHitTime;
+
     // Enum
     protected enum WEAPON_TYPE {BOMB, ROCK}
     private final WEAPON_TYPE TYPE;
@@ -27,19 +29,68 @@ public class Weapon extends RightToLeft {
      * The Weapon constructor used as a super constructor for
      * bombs and rocks to create a weapon object.
      *
-     * @param weapon An Image object containing the weapon in context
+     * @param weapon A Sprite object containing the weapon in context
      * @param type The specific type of weapon required, available from WEAPON_TYPE enum
      * @param pipeSet The pipe set after which this particular weapon has been spawned
+     * @param manager The manager spawning the weapon (for its pipe distance)
+     * @param placement Where the weapon goes between the pipe sets, from 0 (inclusive) to 1 (exclusive)
+     * @param y The y-coordinate of the weapon
+     */
+    public Weapon (Sprite weapon, WEAPON_TYPE type, PipeSet pipeSet, GameManager manager, double placement, int y) {
+        this(weapon, type);
+        reset(pipeSet, manager, placement, y);
+    }
+
+    /**
+     * Create a weapon without placing it, to be restored with readState
+     *
+     * @param weapon A Sprite object containing the weapon in context
+     * @param type The specific type of weapon required, available from WEAPON_TYPE enum
      */
-    public Weapon (Image weapon, WEAPON_TYPE type, PipeSet pipeSet) {
-        super(weapon, new Point(0,0));
-        position = setInitialPosition(pipeSet);
+    protected Weapon (Sprite weapon, WEAPON_TYPE type) {
+        super(weapon, 0, 0);
 
         this.TYPE = type;
         if (type == WEAPON_TYPE.BOMB)
             RANGE = BOMB_RANGE;
         else
             RANGE = ROCK_RANGE;
+    }
+
+    /**
+     * Read a weapon written by writeWeapon into a recycled weapon of its type,
+     * or a new one if its pool is empty
+     *
+     * @param in The buffer to read from
+     * @param rocks The pool of recycled rocks
+     * @param bombs The pool of recycled bombs
+     * @return Returns the restored rock or bomb
+     */
+    public static Weapon readWeapon(ByteBuffer in, Pool<Weapon> rocks, Pool<Weapon> bombs) {
+        Weapon weapon;
+        if (in.get() == WEAPON_TYPE.ROCK.ordinal()) {
+            weapon = rocks.obtain();
+            if (weapon == null)
+                weapon = new Rock();
+        } else {
+            weapon = bombs.obtain();
+            if (weapon == null)
+                weapon = new Bomb();
+        }
+        weapon.readState(in);
+        return weapon;
+    }
+
+    /**
+     * Reinitialize the weapon (new or recycled) after a pipe set
+     *
+     * @param pipeSet The pipe set after which this particular weapon has been spawned
+     * @param manager The manager spawning the weapon (for its pipe distance)
+     * @param placement Where the weapon goes between the pipe sets, from 0 (inclusive) to 1 (exclusive)
+     * @param y The y-coordinate of the weapon
+     */
+    public void reset(PipeSet pipeSet, GameManager manager, double placement, int y) {
+        setInitialPosition(pipeSet, manager, placement, y);
 
         frameCounter = 0;
         isShot = false;
@@ -48,80 +99,106 @@ public class Weapon extends RightToLeft {
     }
 
     /**
-     * Sets the initial position of the weapon at a random location between
-     * pipe sets
+     * Sets the initial position of the weapon between pipe sets, at the
+     * scheduled fraction of the distance to the next pipe set
      *
      * @param pipeSet The pipe set after which the weapon is initialised
-     * @return The initialized random point for the weapon
+     * @param manager The manager spawning the weapon (for its pipe distance)
+     * @param placement Where the weapon goes between the pipe sets, from 0 (inclusive) to 1 (exclusive)
+     * @param y The y-coordinate of the weapon
      */
-    public Point setInitialPosition(PipeSet pipeSet) {
-        Random rand = new Random();
+    public void setInitialPosition(PipeSet pipeSet, GameManager manager, double placement, int y) {
+        // Distance to next pipe at the current timescale
+        double distance = manager.getPipeDistance() - (pipeSet.getWidth() + getWidth());
+        int x = (int) (placement * Math.max((int) distance, 1)) + World.WIDTH + (int) ((pipeSet.getWidth() + getWidth()) / 2);
 
-        // Constants from game manager
-        int pipeSpawnTime = GameManager.PIPE_SPAWN_TIME[GameManager.timeScale];
-        int upperBound = GameManager.Y_UPPER_BOUND;
-        int lowerBound = GameManager.Y_LOWER_BOUND;
-        double speed = GameManager.moveSpeed;
+        // Spawned in place, not interpolated from where a recycled weapon was
+        moveTo(x, y);
+        savePosition();
+    }
 
-        // Distance to next pipe
-        double distance = (pipeSpawnTime * speed) - (pipeSet.getWidth() + getWidth());
-        int x = rand.nextInt((int) distance) + Window.getWidth() + (int) ((pipeSet.getWidth() + getWidth()) / 2);
-        int y = rand.nextInt(upperBound - lowerBound) + lowerBound;
+    /**
+     * Check if the fired weapon is out of range (in frames)
+     *
+     * @return Returns true if out-of-range
+     */
+    public boolean checkOutOfRange() {
+        return frameCounter > RANGE;
+    }
 
-        return new Point(x, y);
+    /**
+     * Check if the weapon destroys a pipe set it hits (rocks cannot break steel pipes)
+     *
+     * @param pipeSet The pipe set hit by the weapon
+     * @return Returns true if the pipe set is destroyed
+     */
+    public boolean canDestroy(PipeSet pipeSet) {
+        return !((TYPE == WEAPON_TYPE.ROCK) && pipeSet.isSteel());
     }
 
     /**
-     * Checks whether the weapon has been picked up by bird
+     * Place the weapon in front of the bird that picked it up
      *
-     * @param bird The bird in play
-     * @return Returns true if the bird has picked up the weapon
+     * @param birdX The current x-coordinate of the bird
+     * @param birdY The current y-coordinate of the bird
+     * @param width The width of the bird
      */
-    public boolean checkPickUp(Bird bird) {
-        if (!isPicked)
-            return checkIntersection(bird.getBox());
-        return false;
+    public void attachTo(double birdX, double birdY, double width) {
+        moveTo(birdX + (width * ADJUSTMENT), birdY);
     }
 
     /**
-     * Check if the fired weapon is out of range (in frames)
+     * Start a new collision step from the current position, with no pipe set reached
+     */
+    @Override
+    public void clearMotion() {
+        super.clearMotion();
+        firstHit = null;
+    }
+
+    /**
+     * Record a pipe set reached in the current collision step, keeping the
+     * earliest (the first recorded wins a tie)
      *
-     * @return Returns true if out-of-range
+     * @param pipeSet The pipe set reached
+     * @param time When it was reached, from 0 (start of the step) to 1 (end)
+     * @return Returns true if it is the first pipe set recorded this step
      */
-    public boolean checkOutOfRange() {
-        return frameCounter > RANGE;
+    public boolean recordHit(PipeSet pipeSet, double time) {
+        boolean first = firstHit == null;
+        if (first || time < firstHitTime) {
+            firstHit = pipeSet;
+            firstHitTime = time;
+        }
+        return first;
     }
 
     /**
-     * Check if weapon has destroyed pipe when shot
+     * Returns the earliest pipe set reached in the current collision step
      *
-     * @param pipeSet The pipe set the weapon has shot at
-     * @return Returns true if pipe and weapon intersect
+     * @return Returns the pipe set, or null if none was reached
      */
-    public boolean checkDestruction(PipeSet pipeSet) {
-        if (isShot)
-            return  pipeSet.checkCollision(getBox(), false);
-        return false;
+    public PipeSet getFirstHit() {
+        return firstHit;
     }
 
     /**
-     * Updates the position of the weapon when picked up bird or shot
+     * Updates the position of the weapon when held by the bird
      *
-     * @param birdPosition The current position of the bird
+     * @param birdX The current x-coordinate of the bird
+     * @param birdY The current y-coordinate of the bird
      * @param width The width of the bird
      */
-    public void updatePosition(Point birdPosition, double width) {
-        position = new Point(birdPosition.x + (width * ADJUSTMENT), birdPosition.y);
-        drawObject();
+    public void updatePosition(double birdX, double birdY, double width) {
+        slideTo(birdX + (width * ADJUSTMENT), birdY);
     }
 
     /**
      * Updates the position of the weapon when shot by the bird
      */
     public void updatePosition() {
-        position = new Point(position.x + SHOOT_SPEED, position.y);
+        slideTo(x + SHOOT_SPEED, y);
         frameCounter += 1;
-        drawObject();
     }
 
     /**
@@ -167,4 +244,31 @@ public class Weapon extends RightToLeft {
     public void setIsPicked(boolean isPicked) {
         this.isPicked = isPicked;
     }
+
+    /**
+     * Write the type and state of the weapon, to be read back with readWeapon
+     *
+     * @param out The buffer to write to
+     */
+    public void writeWeapon(ByteBuffer out) {
+        out.put((byte) TYPE.ordinal());
+        writeState(out);
+    }
+
+    @Override
+    public void writeState(ByteBuffer out) {
+        super.writeState(out);
+        out.putInt(frameCounter);
+        out.put((byte) (isShot ? 1 : 0));
+        out.put((byte) (isPicked ? 1 : 0));
+    }
+
+    @Override
+    public void readState(ByteBuffer in) {
+        super.readState(in);
+        frameCounter = in.getInt();
+        isShot = in.get() != 0;
+        isPicked = in.get() != 0;
+        firstHit = null;
+    }
 }
@@ -0,0 +1,445 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Headless model of a game session (bird, pipes, weapons, lives, score and level)
+ * that can be advanced one frame at a time without a window
+ */
+public class World {
+    /**
+     * Width of the game window
+     */
+    public static final int WIDTH = 1024;
+    /**
+     * Height of the game window
+     */
+    public static final int HEIGHT = 768;
+
+    /**
+     * Input bit: SPACE (start game/flap)
+     */
+    public static final int SPACE = 1;
+    /**
+     * Input bit: L (speed up)
+     */
+    public static final int SPEED_UP = 1 << 1;
+    /**
+     * Input bit: K (slow down)
+     */
+    public static final int SLOW_DOWN = 1 << 2;
+    /**
+     * Input bit: S (shoot)
+     */
+    public static final int SHOOT = 1 << 3;
+
+    /**
+     * How a session ended (PLAYING while it has not)
+     */
+    public enum OUTCOME {PLAYING, HIT_PIPE, OUT_OF_BOUNDS, WON}
+
+    // Constants
+    private final int LEVEL_UP_FRAMES = 20;
+
+    // Game objects
+    private final SessionRandom RANDOM;
+    private final Difficulty DIFFICULTY;
+    private final boolean ENDLESS;
+    private Bird bird;
+    private GameManager manager;
+    private FrameProfiler profiler;
+
+    // Birds and managers of the levels loaded so far, reset when a level is loaded again
+    private final Bird[] BIRDS;
+    private final GameManager[] MANAGERS;
+
+    // Game variables
+    private int score;
+    private int level;
+    private int frameCounter;
+    private boolean gameOn;
+    private boolean gameOver;
+    private boolean gameWon;
+    private boolean loadedObjects;
+    private OUTCOME outcome;
+
+    /**
+     * Creates a new session waiting for SPACE on level 0
+     *
+     * @param seed The seed of all randomness in the session (same seed, same world)
+     */
+    public World(long seed) {
+        this(seed, Difficulty.DEFAULT);
+    }
+
+    /**
+     * Creates a new session waiting for SPACE on level 0, spawning at the given difficulty
+     *
+     * @param seed The seed of all randomness in the session (same seed, same world)
+     * @param difficulty The spawning parameters of the session
+     */
+    public World(long seed, Difficulty difficulty) {
+        this(seed, difficulty, false);
+    }
+
+    /**
+     * Creates a new session waiting for SPACE on level 0. An endless session never
+     * finishes its last level, whose pipe sets come from a course generated in the
+     * background instead.
+     *
+     * @param seed The seed of all randomness in the session (same seed, same world)
+     * @param difficulty The spawning parameters of the session
+     * @param endless True for an endless session
+     */
+    public World(long seed, Difficulty difficulty, boolean endless) {
+        RANDOM = new SessionRandom(seed);
+        DIFFICULTY = difficulty;
+        ENDLESS = endless;
+        BIRDS = new Bird[Levels.getCount()];
+        MANAGERS = new GameManager[Levels.getCount()];
+        start();
+    }
+
+    /**
+     * Start a new session waiting for SPACE on level 0, as a new world with the
+     * same difficulty and mode would, reusing the objects of this one
+     *
+     * @param seed The seed of all randomness in the new session
+     */
+    public void reset(long seed) {
+        RANDOM.reseed(seed);
+        start();
+    }
+
+    /**
+     * Start the session from level 0
+     */
+    private void start() {
+        score = 0;
+        level = 0;
+        frameCounter = 0;
+        gameOn = false;
+        gameWon = false;
+        gameOver = false;
+        loadedObjects = true;
+        outcome = OUTCOME.PLAYING;
+
+        loadLevel(level);
+    }
+
+    /**
+     * Make the bird and manager of a level the ones in play, created the first
+     * time the level is loaded and reset after that
+     *
+     * @param index The level number
+     */
+    private void loadLevel(int index) {
+        if (MANAGERS[index] == null) {
+            BIRDS[index] = new Bird(Levels.get(index));
+            MANAGERS[index] = new GameManager(index, BIRDS[index], RANDOM, DIFFICULTY, isEndlessLevel(index));
+        } else {
+            BIRDS[index].reset();
+            MANAGERS[index].reset();
+        }
+        bird = BIRDS[index];
+        manager = MANAGERS[index];
+    }
+
+    /**
+     * Advance the session by one frame
+     *
+     * @param input Bitmask of the keys pressed this frame (SPACE, SPEED_UP, SLOW_DOWN, SHOOT)
+     */
+    public void update(int input) {
+        // Start counting number of frames as game starts
+        frameCounter += 1;
+
+        if (!gameOn) {
+            if (!loadedObjects)
+                // Change objects pre-game during level transitions
+                levelUp();
+            else if ((input & SPACE) != 0) {
+                frameCounter = 0;
+                gameOn = true;
+            }
+        } else if (!gameOver) {
+            long time = (profiler == null) ? 0 : System.nanoTime();
+
+            // Spawn, flames and gravity
+            manager.update();
+
+            // Allow bird to jump
+            bird.pressedSpace((input & SPACE) != 0);
+
+            // Increase speed with L key
+            manager.speedUp((input & SPEED_UP) != 0);
+
+            // Decrease speed with K key
+            manager.slowDown((input & SLOW_DOWN) != 0);
+
+            // Find overlapping objects for this frame
+            manager.sweepCollisions();
+            time = lap(FrameProfiler.UPDATE, time);
+
+            // Check if any weapon has been picked up
+            manager.pickWeapon();
+            time = lap(FrameProfiler.PICK_WEAPON, time);
+
+            // Check if 'S' has been pressed to shoot
+            manager.shootWeapon((input & SHOOT) != 0);
+            time = lap(FrameProfiler.SHOOT_WEAPON, time);
+
+            // Check collision or game won
+            checkGameOver();
+            time = lap(FrameProfiler.CHECK_GAME_OVER, time);
+
+            // Move objects to the left
+            manager.leftShift();
+            lap(FrameProfiler.LEFT_SHIFT, time);
+        }
+    }
+
+    /**
+     * Record the time of a phase with the profiler, if there is one
+     *
+     * @param phase The phase that ended
+     * @param start The time the phase started at
+     * @return Returns the start of the next phase
+     */
+    private long lap(int phase, long start) {
+        return (profiler == null) ? 0 : profiler.lap(phase, start);
+    }
+
+    /**
+     * Time the phases of every tick with the given profiler
+     *
+     * @param profiler The profiler to record to (null to stop profiling)
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Check if game is over and the outcome
+     */
+    public void checkGameOver() {
+        // Collision with pipes/Out of bounds and no lives left
+        if (manager.checkCollisionAndLives()) {
+            gameOver = true;
+            outcome = OUTCOME.HIT_PIPE;
+        } else if (bird.checkOutOfBoundsAndLives()) {
+            gameOver = true;
+            outcome = OUTCOME.OUT_OF_BOUNDS;
+        }
+
+        // Has passed the pipes successfully
+        score = manager.checkPass();
+        if ((score >= Levels.get(level).getScore()) && !isEndlessLevel(level)) {
+            if (Levels.isLast(level)) {
+                gameWon = true;
+                gameOver = true;
+                outcome = OUTCOME.WON;
+            } else {
+                level += 1;
+                frameCounter = 0;
+                gameOn = false;
+                loadedObjects = false;
+            }
+        }
+    }
+
+    /**
+     * Transition to the next level (reinitialize objects)
+     */
+    public void levelUp() {
+        if (frameCounter >= LEVEL_UP_FRAMES) {
+            score = 0;
+            // Load objects
+            loadLevel(level);
+            loadedObjects = true;
+        }
+    }
+
+    /**
+     * Returns true if a level is played endlessly (the last level of an endless session)
+     *
+     * @param index The level number
+     * @return Returns true for an endless level
+     */
+    private boolean isEndlessLevel(int index) {
+        return ENDLESS && Levels.isLast(index);
+    }
+
+    /**
+     * Write the whole session (seed, difficulty, mode, progress, bird, pipes,
+     * weapons and random streams), to be read back with readWorld
+     *
+     * @param out The buffer to write to
+     */
+    public void writeState(ByteBuffer out) {
+        out.putLong(RANDOM.getSeed());
+        DIFFICULTY.writeState(out);
+        out.put((byte) (ENDLESS ? 1 : 0));
+
+        out.putInt(score);
+        out.putInt(level);
+        out.putInt(frameCounter);
+        out.put((byte) (gameOn ? 1 : 0));
+        out.put((byte) (gameOver ? 1 : 0));
+        out.put((byte) (gameWon ? 1 : 0));
+        out.put((byte) (loadedObjects ? 1 : 0));
+        out.put((byte) outcome.ordinal());
+
+        // Objects stay on the old level until the level-up transition loads the new ones
+        out.put((byte) manager.getLevel());
+        bird.writeState(out);
+        manager.writeState(out);
+        RANDOM.writeState(out);
+    }
+
+    /**
+     * Read a session written by writeState, ready to continue from the same tick
+     *
+     * @param in The buffer to read from
+     * @return Returns the restored world
+     */
+    public static World readWorld(ByteBuffer in) {
+        long seed = in.getLong();
+        Difficulty difficulty = Difficulty.readDifficulty(in);
+        World world = new World(seed, difficulty, in.get() != 0);
+
+        world.score = in.getInt();
+        world.level = in.getInt();
+        world.frameCounter = in.getInt();
+        world.gameOn = in.get() != 0;
+        world.gameOver = in.get() != 0;
+        world.gameWon = in.get() != 0;
+        world.loadedObjects = in.get() != 0;
+        world.outcome = OUTCOME.values()[in.get()];
+
+        int objectsLevel = in.get();
+        if (world.level < 0 || world.level >= Levels.getCount() || objectsLevel < 0 || objectsLevel > world.level)
+            throw new IllegalArgumentException("No level " + world.level);
+        world.loadLevel(objectsLevel);
+        world.bird.readState(in, world.manager.getRockPool(), world.manager.getBombPool());
+        world.manager.readState(in);
+        world.RANDOM.readState(in);
+        return world;
+    }
+
+    /**
+     * Returns the score over all levels (the target scores of the levels finished,
+     * then the score of the current level on top of them)
+     *
+     * @return Returns the total score
+     */
+    public int getTotalScore() {
+        return Levels.getScoreBefore(level) + (loadedObjects ? score : 0);
+    }
+
+    /**
+     * Returns how the session ended
+     *
+     * @return Returns the outcome (PLAYING if not over)
+     */
+    public OUTCOME getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Returns the seed of the session
+     *
+     * @return Returns the seed
+     */
+    public long getSeed() {
+        return RANDOM.getSeed();
+    }
+
+    /**
+     * Returns true if the session is endless
+     *
+     * @return Returns true for an endless session
+     */
+    public boolean isEndless() {
+        return ENDLESS;
+    }
+
+    /**
+     * Returns the bird in play
+     *
+     * @return Returns the bird
+     */
+    public Bird getBird() {
+        return bird;
+    }
+
+    /**
+     * Returns the manager of the pipes and weapons in play
+     *
+     * @return Returns the game manager
+     */
+    public GameManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Returns the current score
+     *
+     * @return Returns the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the current level
+     *
+     * @return Returns the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the rules of the current level
+     *
+     * @return Returns the level definition
+     */
+    public Level getLevelDefinition() {
+        return Levels.get(level);
+    }
+
+    /**
+     * Returns true once SPACE has been pressed to start the level
+     *
+     * @return Returns gameOn
+     */
+    public boolean isGameOn() {
+        return gameOn;
+    }
+
+    /**
+     * Returns true once the bird has no lives left or the game is won
+     *
+     * @return Returns gameOver
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Returns true if the final level has been completed
+     *
+     * @return Returns gameWon
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
+    /**
+     * Returns false while the level-up transition is in progress
+     *
+     * @return Returns loadedObjects
+     */
+    public boolean isLoaded() {
+        return loadedObjects;
+    }
+}